@@ -0,0 +1,189 @@
+package test.maksim.flights.benchmark;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import test.maksim.flights.Config;
+import test.maksim.flights.builder.FlightsBuilder;
+import test.maksim.flights.builder.InterconnectingRoutesBuilder;
+import test.maksim.flights.catalog.CatalogSnapshotStore;
+import test.maksim.flights.catalog.RouteCatalog;
+import test.maksim.flights.constants.ExecutionMode;
+import test.maksim.flights.constants.RejectionPolicy;
+import test.maksim.flights.domain.FlightsRequest;
+import test.maksim.flights.domain.Route;
+import test.maksim.flights.domain.ScheduleRequest;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.rest.dto.Flight;
+import test.maksim.flights.service.FlightsService;
+import test.maksim.flights.service.RoutesRequestService;
+import test.maksim.flights.service.SchedulesRequestService;
+import test.maksim.flights.utils.AdaptiveLimiter;
+import test.maksim.flights.utils.TaskExecutors;
+import test.maksim.flights.validator.RequestValidator;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the blocking search path: a burst of concurrent searches, each fanning out
+ * schedule requests to an upstream stub with fixed latency.
+ * Both modes run the same number of concurrent tasks, the max pool sizes of the service defaults,
+ * so the result compares thread types rather than concurrency limits. {@code VIRTUAL} mode needs a Java 21+ JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+    private static final int AIRPORTS = 250;
+    private static final int ROUTES = 2400;
+    private static final int CONCURRENT_SEARCHES = 50;
+    private static final int SERVICE_CONCURRENCY = 15;
+    private static final int SCHEDULES_CONCURRENCY = 40;
+    private static final long UPSTREAM_LATENCY_MS = 20;
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2149, 3, 1, 5, 0);
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private ExecutionMode mode;
+
+    private AsyncListenableTaskExecutor serviceExecutor;
+    private AsyncListenableTaskExecutor schedulesExecutor;
+    private FlightsService flightsService;
+    private List<FlightsRequest> requests;
+
+    @Setup
+    public void setUp() {
+        serviceExecutor = initialize(TaskExecutors.create(mode, "flight-ws-", SERVICE_CONCURRENCY, SERVICE_CONCURRENCY,
+                SERVICE_CONCURRENCY, Integer.MAX_VALUE, RejectionPolicy.ABORT));
+        schedulesExecutor = initialize(TaskExecutors.create(mode, "schedules-", SCHEDULES_CONCURRENCY, SCHEDULES_CONCURRENCY,
+                SCHEDULES_CONCURRENCY, Integer.MAX_VALUE, RejectionPolicy.ABORT));
+
+        var config = new Config(2, null, null, 1, 3, 31, 1000, 1000, 16, 1, 10000, 30000, 60, 1440);
+        var routes = RouteNetworks.create(AIRPORTS, ROUTES, 42);
+        var routeCatalog = new RouteCatalog(new StubRoutesRequestService(routes), new SimpleMeterRegistry(),
+                new CatalogSnapshotStore(Caffeine.newBuilder().buildAsync(), "", config), new ConcurrentTaskScheduler());
+        routeCatalog.init();
+        flightsService = new FlightsService(routeCatalog,
+                new StubSchedulesRequestService(),
+                new InterconnectingRoutesBuilder(config),
+                new RequestValidator(config),
+                new FlightsBuilder(config),
+                schedulesExecutor,
+                config,
+                new SimpleMeterRegistry(),
+                new AdaptiveLimiter(CONCURRENT_SEARCHES, CONCURRENT_SEARCHES, CONCURRENT_SEARCHES, Duration.ofMinutes(1)));
+
+        requests = new ArrayList<>(CONCURRENT_SEARCHES);
+        for (int i = 0; i < CONCURRENT_SEARCHES; i++) {
+            requests.add(FlightsRequest.builder()
+                    .departureAirport(RouteNetworks.airport(i % 10))
+                    .arrivalAirport(RouteNetworks.airport(AIRPORTS - 1 - i))
+                    .departureDateTime(DEPARTURE)
+                    .arrivalDateTime(DEPARTURE.plusHours(18))
+                    .maxStops(1)
+                    .build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        shutdown(serviceExecutor);
+        shutdown(schedulesExecutor);
+    }
+
+    @Benchmark
+    public int searchBurst() throws Exception {
+        List<Future<List<Flight>>> futures = new ArrayList<>(requests.size());
+        for (var request : requests) {
+            futures.add(serviceExecutor.submit(() -> flightsService.getFlights(request)));
+        }
+
+        int flights = 0;
+        for (var future : futures) {
+            flights += future.get().size();
+        }
+
+        return flights;
+    }
+
+    private static AsyncListenableTaskExecutor initialize(AsyncListenableTaskExecutor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) executor).initialize();
+        }
+
+        return executor;
+    }
+
+    private static void shutdown(AsyncListenableTaskExecutor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) executor).shutdown();
+        }
+    }
+
+    private static class StubRoutesRequestService extends RoutesRequestService {
+
+        private final List<Route> routes;
+
+        StubRoutesRequestService(List<Route> routes) {
+            super(null, null, null, null);
+            this.routes = routes;
+        }
+
+        @Override
+        public List<Route> request(String connectingAirport,
+                                   Collection<String> operators) {
+            return routes;
+        }
+    }
+
+    /**
+     * Blocks the calling thread for the upstream latency, as waiting for a real response does.
+     */
+    private static class StubSchedulesRequestService extends SchedulesRequestService {
+
+        private final Timetable timetable;
+
+        StubSchedulesRequestService() {
+            super(null, null, null, null, null);
+            var builder = Timetable.builder(5);
+            for (var departure = DEPARTURE.plusHours(1); departure.isBefore(DEPARTURE.plusHours(16)); departure = departure.plusHours(3)) {
+                builder.add(departure, departure.plusMinutes(150), 1000);
+            }
+            timetable = builder.build();
+        }
+
+        @Override
+        public Timetable request(ScheduleRequest request) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(UPSTREAM_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return timetable;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package test.maksim.flights.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.maksim.flights.Config;
+import test.maksim.flights.builder.FlightsBuilder;
+import test.maksim.flights.constants.SortOrder;
+import test.maksim.flights.domain.FlightsRequest;
+import test.maksim.flights.domain.InterconnectingRoute;
+import test.maksim.flights.domain.Route;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.rest.dto.Flight;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Itineraries assembly from full month timetables of every leg, 10 flights per day.
+ * Limited searches keep the earliest arrivals, 0 is no limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightsBuilderBenchmark {
+
+    private static final YearMonth MONTH = YearMonth.of(2149, 3);
+    private static final int FLIGHTS_PER_DAY = 10;
+
+    @Param({"2", "3"})
+    private int legs;
+
+    @Param({"1", "3"})
+    private int windowDays;
+
+    @Param({"0", "10"})
+    private int limit;
+
+    private FlightsBuilder builder;
+    private FlightsRequest request;
+    private InterconnectingRoute route;
+    private List<Timetable> legsTimetables;
+
+    @Setup
+    public void setUp() {
+        builder = new FlightsBuilder(new Config(2, null, null, 1, 3, 31, 1000, 1000, 16, 1, 10000, 30000, 60, 1440));
+
+        List<Route> routes = new ArrayList<>();
+        legsTimetables = new ArrayList<>();
+        for (int i = 0; i < legs; i++) {
+            routes.add(RouteNetworks.route(RouteNetworks.airport(i), RouteNetworks.airport(i + 1)));
+            legsTimetables.add(Timetables.createTimetable(MONTH, FLIGHTS_PER_DAY));
+        }
+        route = new InterconnectingRoute(routes);
+
+        var departure = MONTH.atDay(10).atStartOfDay();
+        request = FlightsRequest.builder()
+                .departureAirport(RouteNetworks.airport(0))
+                .arrivalAirport(RouteNetworks.airport(legs))
+                .departureDateTime(departure)
+                .arrivalDateTime(departure.plusDays(windowDays))
+                .maxStops(legs - 1)
+                .limit(limit == 0 ? null : limit)
+                .sort(limit == 0 ? SortOrder.STOPS : SortOrder.ARRIVAL)
+                .build();
+    }
+
+    @Benchmark
+    public List<Flight> build() {
+        return builder.build(request, route, legsTimetables);
+    }
+}
@@ -0,0 +1,127 @@
+package test.maksim.flights.benchmark;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import test.maksim.flights.Config;
+import test.maksim.flights.builder.FlightsBuilder;
+import test.maksim.flights.builder.InterconnectingRoutesBuilder;
+import test.maksim.flights.catalog.CatalogSnapshotStore;
+import test.maksim.flights.catalog.RouteCatalog;
+import test.maksim.flights.constants.ExecutionMode;
+import test.maksim.flights.constants.RejectionPolicy;
+import test.maksim.flights.domain.FlightsRequest;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.domain.TimetableKey;
+import test.maksim.flights.parser.RoutesResponseParser;
+import test.maksim.flights.parser.SchedulesResponseParser;
+import test.maksim.flights.rest.dto.Flight;
+import test.maksim.flights.service.FlightsService;
+import test.maksim.flights.service.RoutesRequestService;
+import test.maksim.flights.service.SchedulesRequestService;
+import test.maksim.flights.service.UpstreamCallPolicy;
+import test.maksim.flights.utils.AdaptiveLimiter;
+import test.maksim.flights.utils.TaskExecutors;
+import test.maksim.flights.validator.RequestValidator;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search with up to 2 stops end to end against in-process upstream services, 10 flights per day on every route.
+ * {@code cold} clears the timetable cache before every search, so every leg is requested and decoded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightsServiceBenchmark {
+
+    private static final String ROUTES_URL = "http://routes";
+    private static final String SCHEDULES_URL = "http://schedules";
+    private static final int AIRPORTS = 250;
+    private static final int ROUTES = 2400;
+    // 30 routes with up to 2 stops from the base A000
+    private static final String ARRIVAL = RouteNetworks.airport(218);
+    private static final YearMonth MONTH = YearMonth.of(2149, 3);
+    private static final int FLIGHTS_PER_DAY = 10;
+
+    @Param({"warm", "cold"})
+    private String cache;
+
+    private ThreadPoolTaskExecutor schedulesExecutor;
+    private AsyncCache<TimetableKey, Timetable> timetableCache;
+    private FlightsService flightsService;
+    private FlightsRequest request;
+
+    @Setup
+    public void setUp() {
+        var upstream = new StubUpstream();
+        upstream.respond(ROUTES_URL, RouteNetworks.create(AIRPORTS, ROUTES, 42));
+        upstream.respond(SCHEDULES_URL, Timetables.createResponse(MONTH, FLIGHTS_PER_DAY));
+        var webClient = upstream.createWebClient();
+        var config = new Config(2, ROUTES_URL, SCHEDULES_URL, 1, 3, 31, 1000, 1000, 16, 1, 10000, 30000, 60, 1440);
+
+        var upstreamCallPolicy = new UpstreamCallPolicy(2, 50, 1000, 0.1, 20, false, 20, 20, 10, 0.5, 5000, new SimpleMeterRegistry());
+
+        timetableCache = Caffeine.newBuilder().buildAsync();
+        var routeCatalog = new RouteCatalog(new RoutesRequestService(webClient, config, new RoutesResponseParser(), upstreamCallPolicy),
+                new SimpleMeterRegistry(),
+                new CatalogSnapshotStore(timetableCache, "", config),
+                new ConcurrentTaskScheduler());
+        routeCatalog.init();
+        schedulesExecutor = (ThreadPoolTaskExecutor) TaskExecutors.create(ExecutionMode.PLATFORM, "schedules-", 30, 40, 200,
+                Integer.MAX_VALUE, RejectionPolicy.ABORT);
+        schedulesExecutor.initialize();
+        flightsService = new FlightsService(routeCatalog,
+                new SchedulesRequestService(webClient, config, timetableCache, new SchedulesResponseParser(), upstreamCallPolicy),
+                new InterconnectingRoutesBuilder(config),
+                new RequestValidator(config),
+                new FlightsBuilder(config),
+                schedulesExecutor,
+                config,
+                new SimpleMeterRegistry(),
+                new AdaptiveLimiter(64, 64, 64, Duration.ofMinutes(1)));
+
+        var departure = MONTH.atDay(10).atStartOfDay();
+        request = FlightsRequest.builder()
+                .departureAirport(RouteNetworks.airport(0))
+                .arrivalAirport(ARRIVAL)
+                .departureDateTime(departure)
+                .arrivalDateTime(departure.plusDays(1))
+                .maxStops(2)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        schedulesExecutor.shutdown();
+    }
+
+    @Benchmark
+    public List<Flight> getFlights() {
+        if ("cold".equals(cache)) {
+            timetableCache.synchronous().invalidateAll();
+        }
+
+        return flightsService.getFlights(request);
+    }
+}
@@ -0,0 +1,61 @@
+package test.maksim.flights.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.maksim.flights.Config;
+import test.maksim.flights.builder.InterconnectingRoutesBuilder;
+import test.maksim.flights.catalog.RouteGraph;
+import test.maksim.flights.domain.FlightsRequest;
+import test.maksim.flights.domain.InterconnectingRoute;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path enumeration latency per number of stops on a ~2,400 routes network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterconnectingRoutesBuilderBenchmark {
+
+    private static final int AIRPORTS = 250;
+    private static final int ROUTES = 2400;
+    // a regional airport with direct and connecting routes from the base A000
+    private static final String ARRIVAL = RouteNetworks.airport(218);
+
+    @Param({"0", "1", "2", "3"})
+    private int maxStops;
+
+    private InterconnectingRoutesBuilder builder;
+    private RouteGraph graph;
+    private FlightsRequest request;
+
+    @Setup
+    public void setUp() {
+        builder = new InterconnectingRoutesBuilder(new Config(2, null, null, 1, 3, 31, 1000, 1000, 16, 1, 10000, 30000, 60, 1440));
+        graph = RouteGraph.of(RouteNetworks.create(AIRPORTS, ROUTES, 42));
+        request = FlightsRequest.builder()
+                .departureAirport(RouteNetworks.airport(0))
+                .arrivalAirport(ARRIVAL)
+                .maxStops(maxStops)
+                .build();
+    }
+
+    @Benchmark
+    public List<InterconnectingRoute> build() {
+        return builder.build(request, graph);
+    }
+}
@@ -0,0 +1,59 @@
+package test.maksim.flights.benchmark;
+
+import test.maksim.flights.domain.Route;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static test.maksim.flights.constants.OperatorNames.RYANAIR;
+
+/**
+ * Synthetic routes networks shaped like a low-cost carrier network:
+ * a few bases with high degree and many regional airports served from them.
+ */
+final class RouteNetworks {
+
+    private RouteNetworks() {
+    }
+
+    static String airport(int index) {
+        return String.format("A%03d", index).intern();
+    }
+
+    static List<Route> create(int airports,
+                              int routes,
+                              long seed) {
+        var random = new Random(seed);
+        int bases = Math.max(1, airports / 10);
+        Set<String> pairs = new HashSet<>();
+        List<Route> result = new ArrayList<>(routes);
+        while (result.size() < routes) {
+            int from = random.nextInt(airports);
+            // most of the routes touch one of the bases
+            int to = random.nextInt(4) == 0 ? random.nextInt(airports) : random.nextInt(bases);
+            if (from == to || !pairs.add(from + "-" + to)) {
+                continue;
+            }
+
+            result.add(route(airport(from), airport(to)));
+            if (result.size() < routes && pairs.add(to + "-" + from)) {
+                result.add(route(airport(to), airport(from)));
+            }
+        }
+
+        return result;
+    }
+
+    static Route route(String from,
+                       String to) {
+        var route = new Route();
+        route.setAirportFrom(from);
+        route.setAirportTo(to);
+        route.setOperator(RYANAIR);
+
+        return route;
+    }
+}
@@ -0,0 +1,68 @@
+package test.maksim.flights.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.maksim.flights.Config;
+import test.maksim.flights.domain.Route;
+import test.maksim.flights.parser.RoutesResponseParser;
+import test.maksim.flights.service.RoutesRequestService;
+import test.maksim.flights.service.UpstreamCallPolicy;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static test.maksim.flights.constants.OperatorNames.RYANAIR;
+
+/**
+ * Loading a catalog of 20,000 routes where every fourth route is operated by another carrier
+ * or has a connecting airport, the upstream is in-process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutesRequestServiceBenchmark {
+
+    private static final String ROUTES_URL = "http://routes";
+    private static final int AIRPORTS = 1000;
+    private static final int ROUTES = 20000;
+
+    private RoutesRequestService service;
+
+    @Setup
+    public void setUp() {
+        List<Route> routes = RouteNetworks.create(AIRPORTS, ROUTES, 42);
+        for (int i = 0; i < routes.size(); i += 4) {
+            if (i % 8 == 0) {
+                routes.get(i).setOperator("AIR_EUROPA");
+            } else {
+                routes.get(i).setConnectingAirport(RouteNetworks.airport(0));
+            }
+        }
+        routes.forEach(it -> it.setGroup("CITY"));
+
+        var upstream = new StubUpstream();
+        upstream.respond(ROUTES_URL, routes);
+        service = new RoutesRequestService(upstream.createWebClient(),
+                new Config(2, ROUTES_URL, null, 1, 3, 31, 1000, 1000, 16, 1, 10000, 30000, 60, 1440),
+                new RoutesResponseParser(),
+                new UpstreamCallPolicy(2, 50, 1000, 0.1, 20, false, 20, 20, 10, 0.5, 5000, new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public List<Route> request() {
+        return service.request(null, Set.of(RYANAIR));
+    }
+}
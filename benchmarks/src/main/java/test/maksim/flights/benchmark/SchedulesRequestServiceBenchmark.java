@@ -0,0 +1,74 @@
+package test.maksim.flights.benchmark;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.maksim.flights.Config;
+import test.maksim.flights.domain.ScheduleRequest;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.domain.TimetableKey;
+import test.maksim.flights.parser.SchedulesResponseParser;
+import test.maksim.flights.service.SchedulesRequestService;
+import test.maksim.flights.service.UpstreamCallPolicy;
+
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a month schedules response into a timetable and filtering it to a one day window.
+ * The timetable cache is cleared before every request, the upstream is in-process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulesRequestServiceBenchmark {
+
+    private static final String SCHEDULES_URL = "http://schedules";
+    private static final YearMonth MONTH = YearMonth.of(2149, 3);
+
+    @Param({"3", "30"})
+    private int flightsPerDay;
+
+    private AsyncCache<TimetableKey, Timetable> timetableCache;
+    private SchedulesRequestService service;
+    private ScheduleRequest request;
+
+    @Setup
+    public void setUp() {
+        var upstream = new StubUpstream();
+        upstream.respond(SCHEDULES_URL, Timetables.createResponse(MONTH, flightsPerDay));
+        timetableCache = Caffeine.newBuilder().buildAsync();
+        service = new SchedulesRequestService(upstream.createWebClient(),
+                new Config(2, null, SCHEDULES_URL, 1, 3, 31, 1000, 1000, 16, 1, 10000, 30000, 60, 1440),
+                timetableCache,
+                new SchedulesResponseParser(),
+                new UpstreamCallPolicy(2, 50, 1000, 0.1, 20, false, 20, 20, 10, 0.5, 5000, new SimpleMeterRegistry()));
+        request = ScheduleRequest.builder()
+                .from(RouteNetworks.airport(0))
+                .to(RouteNetworks.airport(1))
+                .dateTime(MONTH.atDay(14).atStartOfDay())
+                .dateTimeEnd(MONTH.atDay(15).atStartOfDay())
+                .build();
+    }
+
+    @Benchmark
+    public Timetable request() {
+        timetableCache.synchronous().invalidateAll();
+
+        return service.request(request);
+    }
+}
@@ -0,0 +1,64 @@
+package test.maksim.flights.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process upstream services for {@link WebClient}, responds with JSON bodies registered per url prefix.
+ * Bodies are serialized once, so only the client side of a request is measured.
+ */
+final class StubUpstream implements ExchangeFunction {
+
+    // times are written as "HH:mm" strings like the upstream services do
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final Map<String, String> bodies = new ConcurrentHashMap<>();
+
+    WebClient createWebClient() {
+        return WebClient.builder()
+                .exchangeFunction(this)
+                .build();
+    }
+
+    void respond(String urlPrefix,
+                 Object body) {
+        try {
+            bodies.put(urlPrefix, objectMapper.writeValueAsString(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> exchange(ClientRequest request) {
+        var url = request.url().toString();
+
+        return Mono.fromSupplier(() -> bodies.entrySet().stream()
+                .filter(it -> url.startsWith(it.getKey()))
+                .findFirst()
+                .map(it -> createResponse(HttpStatus.OK, it.getValue()))
+                .orElseGet(() -> createResponse(HttpStatus.NOT_FOUND, "")));
+    }
+
+    private ClientResponse createResponse(HttpStatus status,
+                                          String body) {
+        return ClientResponse.create(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+}
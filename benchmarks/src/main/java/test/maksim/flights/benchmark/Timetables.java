@@ -0,0 +1,73 @@
+package test.maksim.flights.benchmark;
+
+import test.maksim.flights.domain.SchedulesResponse;
+import test.maksim.flights.domain.SchedulesResponse.Day;
+import test.maksim.flights.domain.SchedulesResponse.Schedule;
+import test.maksim.flights.domain.Timetable;
+
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic month timetables with flights spread evenly between 06:00 and 23:00.
+ */
+final class Timetables {
+
+    private static final int FIRST_DEPARTURE_MIN = 6 * 60;
+    private static final int LAST_DEPARTURE_MIN = 23 * 60;
+    private static final int FLIGHT_DURATION_MIN = 150;
+
+    private Timetables() {
+    }
+
+    static SchedulesResponse createResponse(YearMonth month,
+                                            int flightsPerDay) {
+        List<Day> days = new ArrayList<>();
+        for (int dayOfMonth = 1; dayOfMonth <= month.lengthOfMonth(); dayOfMonth++) {
+            List<Schedule> flights = new ArrayList<>();
+            for (var departure : departures(flightsPerDay)) {
+                var schedule = new Schedule();
+                schedule.setNumber(1000 + flights.size());
+                schedule.setDepartureTime(departure);
+                schedule.setArrivalTime(departure.plusMinutes(FLIGHT_DURATION_MIN));
+                flights.add(schedule);
+            }
+
+            var day = new Day();
+            day.setDay(dayOfMonth);
+            day.setFlights(flights);
+            days.add(day);
+        }
+
+        var response = new SchedulesResponse();
+        response.setMonth(month.getMonthValue());
+        response.setDays(days);
+
+        return response;
+    }
+
+    static Timetable createTimetable(YearMonth month,
+                                     int flightsPerDay) {
+        var builder = Timetable.builder(month.lengthOfMonth() * flightsPerDay);
+        for (int dayOfMonth = 1; dayOfMonth <= month.lengthOfMonth(); dayOfMonth++) {
+            for (var departure : departures(flightsPerDay)) {
+                var departureTime = month.atDay(dayOfMonth).atTime(departure);
+                builder.add(departureTime, departureTime.plusMinutes(FLIGHT_DURATION_MIN), 1000);
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static List<LocalTime> departures(int flightsPerDay) {
+        int step = (LAST_DEPARTURE_MIN - FIRST_DEPARTURE_MIN) / flightsPerDay;
+        List<LocalTime> result = new ArrayList<>(flightsPerDay);
+        for (int i = 0; i < flightsPerDay; i++) {
+            result.add(LocalTime.MIN.plusMinutes(FIRST_DEPARTURE_MIN + i * step));
+        }
+
+        return result;
+    }
+}
@@ -1,45 +1,138 @@
 package test.maksim.flights;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.core.task.AsyncTaskExecutor;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import test.maksim.flights.constants.ExecutionMode;
+import test.maksim.flights.constants.RejectionPolicy;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.domain.TimetableKey;
+import test.maksim.flights.utils.AdaptiveLimiter;
+import test.maksim.flights.utils.FixedExpiry;
+import test.maksim.flights.utils.TaskExecutors;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @SpringBootApplication
+@EnableScheduling
 public class Application {
 
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
     }
 
+    /**
+     * Non-blocking client of the upstream routes and schedules services.
+     * Connections are pooled per remote host, the pool size limits concurrent requests to a host
+     * and requests above the limit wait for a free connection.
+     * A request fails if the upstream does not accept the connection or stops sending the response for the timeouts.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public WebClient webClient(WebClient.Builder builder,
+                               @Value("${upstream.max.connections.per.host:50}") int maxConnections,
+                               @Value("${upstream.acquire.timeout.ms:10000}") long acquireTimeoutMs,
+                               @Value("${upstream.connect.timeout.ms:2000}") int connectTimeoutMs,
+                               @Value("${upstream.read.timeout.ms:5000}") long readTimeoutMs) {
+        var connectionProvider = ConnectionProvider.fixed("upstream", maxConnections, acquireTimeoutMs);
+        var httpClient = HttpClient.create(connectionProvider)
+                .tcpConfiguration(tcp -> tcp
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                        .doOnConnected(connection -> connection
+                                .addHandlerLast(new ReadTimeoutHandler(readTimeoutMs, TimeUnit.MILLISECONDS))));
+
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
 
+    /**
+     * Runs searches of the async endpoint, searches over the queue capacity are rejected by default.
+     */
     @Bean
-    public AsyncListenableTaskExecutor serviceExecutor(@Value("${service-executor.core.pool.size:10}") int corePoolSize,
-                                                       @Value("${service-executor.max.pool.size:15}") int maxPoolSize) {
-        var executor = new ThreadPoolTaskExecutor();
-        executor.setThreadNamePrefix("flight-ws-");
-        executor.setCorePoolSize(corePoolSize);
-        executor.setMaxPoolSize(maxPoolSize);
+    public AsyncListenableTaskExecutor serviceExecutor(@Value("${execution.mode:PLATFORM}") ExecutionMode mode,
+                                                       @Value("${service-executor.core.pool.size:10}") int corePoolSize,
+                                                       @Value("${service-executor.max.pool.size:15}") int maxPoolSize,
+                                                       @Value("${service-executor.max.concurrency:500}") int maxConcurrency,
+                                                       @Value("${service-executor.queue.capacity:100}") int queueCapacity,
+                                                       @Value("${service-executor.rejection.policy:ABORT}") RejectionPolicy rejectionPolicy,
+                                                       MeterRegistry meterRegistry) {
+        var executor = TaskExecutors.create(mode, "flight-ws-", corePoolSize, maxPoolSize, maxConcurrency,
+                queueCapacity, rejectionPolicy);
+        TaskExecutors.monitor(executor, "service", meterRegistry);
 
         return executor;
     }
 
+    /**
+     * Requests schedules of the routes of a search, by default a saturated executor makes the search thread
+     * request schedules itself, which slows down accepting new searches.
+     */
     @Bean
-    public AsyncTaskExecutor schedulesExecutor(@Value("${schedules-executor.core.pool.size:30}") int corePoolSize,
-                                               @Value("${schedules-executor.max.pool.size:40}") int maxPoolSize) {
-        var executor = new ThreadPoolTaskExecutor();
-        executor.setThreadNamePrefix("schedules-");
-        executor.setCorePoolSize(corePoolSize);
-        executor.setMaxPoolSize(maxPoolSize);
+    public AsyncTaskExecutor schedulesExecutor(@Value("${execution.mode:PLATFORM}") ExecutionMode mode,
+                                               @Value("${schedules-executor.core.pool.size:30}") int corePoolSize,
+                                               @Value("${schedules-executor.max.pool.size:40}") int maxPoolSize,
+                                               @Value("${schedules-executor.max.concurrency:200}") int maxConcurrency,
+                                               @Value("${schedules-executor.queue.capacity:1000}") int queueCapacity,
+                                               @Value("${schedules-executor.rejection.policy:CALLER_RUNS}") RejectionPolicy rejectionPolicy,
+                                               MeterRegistry meterRegistry) {
+        var executor = TaskExecutors.create(mode, "schedules-", corePoolSize, maxPoolSize, maxConcurrency,
+                queueCapacity, rejectionPolicy);
+        TaskExecutors.monitor(executor, "schedules", meterRegistry);
 
         return executor;
     }
+
+    /**
+     * Concurrency limit of searches, adapted to the search latency.
+     */
+    @Bean
+    public AdaptiveLimiter searchLimiter(@Value("${search.limiter.initial.limit:100}") int initialLimit,
+                                         @Value("${search.limiter.min.limit:10}") int minLimit,
+                                         @Value("${search.limiter.max.limit:1000}") int maxLimit,
+                                         @Value("${search.limiter.latency.threshold.ms:5000}") long latencyThresholdMs,
+                                         MeterRegistry meterRegistry) {
+        var limiter = new AdaptiveLimiter(initialLimit, minLimit, maxLimit, Duration.ofMillis(latencyThresholdMs));
+        Gauge.builder("search.limiter.limit", limiter, AdaptiveLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("search.limiter.in.flight", limiter, AdaptiveLimiter::getInFlight).register(meterRegistry);
+        FunctionCounter.builder("search.limiter.rejected", limiter, AdaptiveLimiter::getRejected).register(meterRegistry);
+
+        return limiter;
+    }
+
+    /**
+     * Month timetables weighted by number of flights, so the bound does not depend on how busy routes are.
+     * Async cache shares an in-flight request between concurrent callers of the same month.
+     * Timetables are kept for the stale period after the TTL, to be served while they are revalidated.
+     */
+    @Bean
+    public AsyncCache<TimetableKey, Timetable> timetableCache(Config config,
+                                                           @Value("${schedules.cache.max.flights:2000000}") long maxFlights,
+                                                           MeterRegistry meterRegistry) {
+        AsyncCache<TimetableKey, Timetable> cache = Caffeine.newBuilder()
+                .expireAfter(new FixedExpiry<TimetableKey, Timetable>(
+                        Duration.ofMinutes(config.getSchedulesCacheTtlMinutes() + config.getSchedulesCacheStaleMinutes())))
+                .maximumWeight(maxFlights)
+                .weigher((TimetableKey key, Timetable value) -> 1 + value.size())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "timetables");
+
+        return cache;
+    }
 }
@@ -12,14 +12,44 @@ public class Config {
     private final String routesServiceUrl;
     private final String schedulesServiceUrl;
     private final int defaultMaxStops;
+    private final int maxStopsLimit;
+    private final int maxSearchWindowDays;
+    private final int maxRouteCandidates;
+    private final int maxBatchSize;
+    private final int batchConcurrency;
+    private final int retryAfterSeconds;
+    private final long defaultSearchTimeoutMs;
+    private final long maxSearchTimeoutMs;
+    private final int schedulesCacheTtlMinutes;
+    private final int schedulesCacheStaleMinutes;
 
     public Config(@Value("${min.stop.duration.hour:2}") int minStopDuration,
                   @Value("${routes.service.url:https://services-api.ryanair.com/locate/3/routes}") String routesServiceUrl,
                   @Value("${schedules.service.url:https://services-api.ryanair.com/timtbl/3/schedules}") String schedulesServiceUrl,
-                  @Value("${default.max.stops:1}") int defaultMaxStops) {
+                  @Value("${default.max.stops:1}") int defaultMaxStops,
+                  @Value("${max.stops.limit:3}") int maxStopsLimit,
+                  @Value("${search.window.max.days:31}") int maxSearchWindowDays,
+                  @Value("${routes.max.candidates:1000}") int maxRouteCandidates,
+                  @Value("${batch.max.size:1000}") int maxBatchSize,
+                  @Value("${batch.concurrency:16}") int batchConcurrency,
+                  @Value("${overload.retry.after.seconds:1}") int retryAfterSeconds,
+                  @Value("${search.timeout.ms:10000}") long defaultSearchTimeoutMs,
+                  @Value("${search.timeout.max.ms:30000}") long maxSearchTimeoutMs,
+                  @Value("${schedules.cache.ttl.minutes:60}") int schedulesCacheTtlMinutes,
+                  @Value("${schedules.cache.stale.minutes:1440}") int schedulesCacheStaleMinutes) {
         this.minStopDuration = minStopDuration;
         this.routesServiceUrl = routesServiceUrl;
         this.schedulesServiceUrl = schedulesServiceUrl;
         this.defaultMaxStops = defaultMaxStops;
+        this.maxStopsLimit = maxStopsLimit;
+        this.maxSearchWindowDays = maxSearchWindowDays;
+        this.maxRouteCandidates = maxRouteCandidates;
+        this.maxBatchSize = maxBatchSize;
+        this.batchConcurrency = batchConcurrency;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.defaultSearchTimeoutMs = defaultSearchTimeoutMs;
+        this.maxSearchTimeoutMs = maxSearchTimeoutMs;
+        this.schedulesCacheTtlMinutes = schedulesCacheTtlMinutes;
+        this.schedulesCacheStaleMinutes = schedulesCacheStaleMinutes;
     }
 }
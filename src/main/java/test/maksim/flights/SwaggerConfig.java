@@ -4,6 +4,7 @@ import io.swagger.annotations.Api;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.concurrent.ListenableFuture;
+import reactor.core.publisher.Mono;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -19,7 +20,7 @@ public class SwaggerConfig {
     @Bean
     public Docket api(ApiInfo apiInfo) {
         return new Docket(DocumentationType.SWAGGER_2).apiInfo(apiInfo)
-                                                      .genericModelSubstitutes(ListenableFuture.class)
+                                                      .genericModelSubstitutes(ListenableFuture.class, Mono.class)
                                                       .select()
                                                       .apis(RequestHandlerSelectors.withClassAnnotation(Api.class))
                                                       .paths(PathSelectors.any())
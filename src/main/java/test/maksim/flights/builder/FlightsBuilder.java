@@ -1,73 +1,236 @@
 package test.maksim.flights.builder;
 
 import test.maksim.flights.Config;
-import test.maksim.flights.domain.FlightSchedule;
+import test.maksim.flights.constants.SortOrder;
 import test.maksim.flights.domain.FlightsRequest;
+import test.maksim.flights.domain.InterconnectingRoute;
 import test.maksim.flights.domain.Route;
+import test.maksim.flights.domain.Timetable;
 import test.maksim.flights.rest.dto.Flight;
 import test.maksim.flights.utils.DateTimeUtils;
+import test.maksim.flights.utils.TopN;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
 
-import static java.time.temporal.ChronoUnit.HOURS;
+import static java.util.stream.Collectors.toList;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class FlightsBuilder {
 
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int LEG_SHIFT = 24;
+    private static final int MAX_LEG_FLIGHTS = 1 << LEG_SHIFT;
+    private static final Comparator<Journey> ARRIVAL_ORDER = Comparator
+            .comparingInt(Journey::getArrivalMinute);
+
     private final Config config;
 
-    public List<Flight> createFlights(FlightsRequest request,
-                                      int stops,
-                                      Route route,
-                                      List<FlightSchedule> flightSchedules) {
-       return flightSchedules.stream()
-                .filter(it -> DateTimeUtils.isBeforeOrEquals(it.getArrivalTime(), request.getArrivalDateTime()))
-                .map(it -> createFlight(it, route, stops))
-                .collect(Collectors.toList());
-    }
+    /**
+     * Connection scan over the timetable of the route legs.
+     * All connections are scanned once in departure order, a journey which arrived to the leg end
+     * becomes available for the next leg as soon as the minimal stop duration has passed,
+     * so the work is proportional to the number of connections plus the number of found flights.
+     * With a results limit only the best flights of the route in the request sort order are kept,
+     * journeys which cannot become one of them are dropped before they are continued.
+     *
+     * @param legsTimetables timetables of every route leg, in the order of {@link InterconnectingRoute#getRoutes()}
+     * @return feasible flights within the request time window, the best ones first if the result is limited
+     */
+    public List<Flight> build(FlightsRequest request,
+                              InterconnectingRoute interconnectingRoute,
+                              List<Timetable> legsTimetables) {
+        List<Route> routes = interconnectingRoute.getRoutes();
+        int lastLeg = routes.size() - 1;
+        int minStopMinutes = config.getMinStopDuration() * MINUTES_PER_HOUR;
+        List<PriorityQueue<Journey>> arrived = new ArrayList<>();
+        List<List<Journey>> connectable = new ArrayList<>();
+        for (int i = 0; i < lastLeg; i++) {
+            arrived.add(new PriorityQueue<>(ARRIVAL_ORDER));
+            connectable.add(new ArrayList<>());
+        }
+
+        SortOrder sort = request.getSort();
+        var best = new TopN<Journey>(request.getResultsLimit(), Comparator.comparingInt(it -> rank(sort, it)));
+        for (long connection : sortConnections(request, legsTimetables)) {
+            int leg = (int) (connection >>> LEG_SHIFT) & 0xFF;
+            int index = (int) connection & (MAX_LEG_FLIGHTS - 1);
+            var timetable = legsTimetables.get(leg);
+            if (isCompleted(sort, best, timetable.getDepartureMinute(index))) {
+                break;
+            }
+
+            List<Journey> journeys;
+            if (leg == 0) {
+                journeys = List.of(new Journey(null, leg, index, timetable.getDepartureMinute(index),
+                        timetable.getArrivalMinute(index)));
+            } else {
+                int latestArrival = timetable.getDepartureMinute(index) - minStopMinutes;
+                var previous = connectable.get(leg - 1);
+                release(arrived.get(leg - 1), previous, latestArrival);
 
-    public void addAvailableLegs(Route route,
-                                 List<FlightSchedule> flightSchedules,
-                                 List<Flight> flights) {
-        for (var flightSchedule : flightSchedules) {
-            for (var flight : flights) {
-                if (flight.getLegs().size() - 1 == flight.getStops()) { // skip if already found
+                journeys = new ArrayList<>(previous.size());
+                for (var journey : previous) {
+                    journeys.add(new Journey(journey, leg, index, journey.departureMinute,
+                            timetable.getArrivalMinute(index)));
+                }
+            }
+
+            for (var journey : journeys) {
+                if (!canBeBest(sort, best, journey)) {
                     continue;
                 }
 
-                var lastLeg = flight.getLegs().get(flight.getLegs().size() - 1);
-                LocalDateTime nextTime = lastLeg.getArrivalDateTime().plus(config.getMinStopDuration(), HOURS);
-                if (DateTimeUtils.isBeforeOrEquals(nextTime, flightSchedule.getDepartureTime())) {
-                    flight.getLegs().add(createLeg(route, flightSchedule));
+                if (leg == lastLeg) {
+                    best.offer(journey);
+                } else {
+                    arrived.get(leg).add(journey);
                 }
             }
         }
+
+        return best.toList().stream()
+                .map(it -> createFlight(it, routes, legsTimetables))
+                .collect(toList());
     }
 
-    private Flight createFlight(FlightSchedule flightSchedule,
-                                Route route,
-                                int stops) {
-        List<Flight.Leg> legs = new ArrayList<>();
-        legs.add(createLeg(route, flightSchedule));
+    /**
+     * Rank of a journey in the sort order, continuing a journey never makes its rank better.
+     * All flights of a route have the same number of stops.
+     */
+    private static int rank(SortOrder sort,
+                            Journey journey) {
+        switch (sort) {
+            case ARRIVAL:
+                return journey.arrivalMinute;
+            case DURATION:
+                return journey.arrivalMinute - journey.departureMinute;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean canBeBest(SortOrder sort,
+                                     TopN<Journey> best,
+                                     Journey journey) {
+        return !best.isFull() || rank(sort, journey) < rank(sort, best.getWorst());
+    }
+
+    /**
+     * @return {@code true} if no connection departing at the minute or later can make a better flight
+     */
+    private static boolean isCompleted(SortOrder sort,
+                                       TopN<Journey> best,
+                                       int departureMinute) {
+        if (!best.isFull()) {
+            return false;
+        }
 
-        return new Flight(stops, legs);
+        switch (sort) {
+            case STOPS:
+                return true;
+            case ARRIVAL:
+                return departureMinute >= rank(sort, best.getWorst());
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return connections in the window packed as departure minute, leg and index in the leg timetable,
+     * so sorting them orders by departure time and then by leg
+     */
+    private long[] sortConnections(FlightsRequest request,
+                                   List<Timetable> legsTimetables) {
+        int startMinute = DateTimeUtils.toEpochMinuteRoundedUp(request.getDepartureDateTime());
+        int endMinute = DateTimeUtils.toEpochMinute(request.getArrivalDateTime());
+
+        int count = 0;
+        var connections = new long[legsTimetables.stream().mapToInt(Timetable::size).sum()];
+        for (int leg = 0; leg < legsTimetables.size(); leg++) {
+            var timetable = legsTimetables.get(leg);
+            if (timetable.size() > MAX_LEG_FLIGHTS) {
+                throw new IllegalArgumentException("Too many flights on leg: " + timetable.size());
+            }
+
+            for (int i = 0; i < timetable.size(); i++) {
+                if (timetable.getDepartureMinute(i) >= startMinute && timetable.getArrivalMinute(i) <= endMinute) {
+                    connections[count++] = (long) timetable.getDepartureMinute(i) << 32 | (long) leg << LEG_SHIFT | i;
+                }
+            }
+        }
+
+        var result = Arrays.copyOf(connections, count);
+        Arrays.sort(result);
+
+        return result;
+    }
+
+    private void release(PriorityQueue<Journey> arrived,
+                         List<Journey> connectable,
+                         int latestArrival) {
+        while (!arrived.isEmpty() && arrived.peek().getArrivalMinute() <= latestArrival) {
+            connectable.add(arrived.poll());
+        }
+    }
+
+    private Flight createFlight(Journey journey,
+                                List<Route> routes,
+                                List<Timetable> legsTimetables) {
+        List<Flight.Leg> legs = new ArrayList<>(routes.size());
+        for (var it = journey; it != null; it = it.previous) {
+            legs.add(createLeg(routes.get(it.leg), legsTimetables.get(it.leg), it.index));
+        }
+        Collections.reverse(legs);
+
+        return new Flight(routes.size() - 1, legs);
     }
 
     private Flight.Leg createLeg(Route route,
-                                 FlightSchedule flightSchedule) {
+                                 Timetable timetable,
+                                 int index) {
         return Flight.Leg.builder()
                 .departureAirport(route.getAirportFrom())
                 .arrivalAirport(route.getAirportTo())
-                .departureDateTime(flightSchedule.getDepartureTime())
-                .arrivalDateTime(flightSchedule.getArrivalTime())
+                .departureDateTime(timetable.getDepartureTime(index))
+                .arrivalDateTime(timetable.getArrivalTime(index))
                 .build();
     }
+
+    /**
+     * Chain of connections from the first leg, the tail is shared by all journeys continuing it.
+     */
+    private static class Journey {
+
+        private final Journey previous;
+        private final int leg;
+        private final int index;
+        private final int departureMinute;
+        private final int arrivalMinute;
+
+        Journey(Journey previous,
+                int leg,
+                int index,
+                int departureMinute,
+                int arrivalMinute) {
+            this.previous = previous;
+            this.leg = leg;
+            this.index = index;
+            this.departureMinute = departureMinute;
+            this.arrivalMinute = arrivalMinute;
+        }
+
+        int getArrivalMinute() {
+            return arrivalMinute;
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package test.maksim.flights.builder;
 
+import test.maksim.flights.Config;
+import test.maksim.flights.catalog.AirportRegistry;
+import test.maksim.flights.catalog.RouteGraph;
 import test.maksim.flights.domain.FlightsRequest;
 import test.maksim.flights.domain.InterconnectingRoute;
 import test.maksim.flights.domain.Route;
@@ -9,29 +12,115 @@ import org.springframework.stereotype.Component;
 import java.util.ArrayList;
 import java.util.List;
 
+import static java.util.Collections.emptyList;
+
 @Component
 @RequiredArgsConstructor
 public class InterconnectingRoutesBuilder {
 
+    private final Config config;
+
     /**
-     * TODO future improvements: in order to handle unlimited stops
-     * need to build interconnecting routes with more smart algorithm,
-     * e.q. Graph data structure
+     * Bounded depth-first search of routes between departure and arrival airports.
+     * Paths are searched with increasing number of legs, so routes with less stops come first
+     * and are never cut off by the candidates limit.
+     * Airports are never revisited and airports which cannot reach the arrival with the remaining legs are pruned.
      */
+    public List<InterconnectingRoute> build(FlightsRequest request,
+                                            RouteGraph graph) {
+        int departure = graph.getAirports().getId(request.getDepartureAirport());
+        int arrival = graph.getAirports().getId(request.getArrivalAirport());
+        if (departure == AirportRegistry.UNKNOWN || arrival == AirportRegistry.UNKNOWN) {
+            return emptyList();
+        }
+
+        int maxLegs = request.getMaxStops() + 1;
+        var search = new Search(graph, arrival, graph.getHopsTo(arrival, maxLegs));
+        for (int legs = 1; legs <= maxLegs && !search.isFull(); legs++) {
+            search.visit(departure, legs);
+        }
 
-    private final DirectRouteBuilder directRouteBuilder;
-    private final OneStopRouteBuilder oneStopRouteBuilder;
+        return search.result;
+    }
 
-    public List<InterconnectingRoute> build(FlightsRequest request,
-                                            List<Route> routes) {
-        List<InterconnectingRoute> result = new ArrayList<>();
+    private class Search {
+
+        private final RouteGraph graph;
+        private final int arrival;
+        private final int[] hopsToArrival;
+        private final boolean[] visited;
+        private final List<Route> path = new ArrayList<>();
+        private final List<InterconnectingRoute> result = new ArrayList<>();
+
+        Search(RouteGraph graph,
+               int arrival,
+               int[] hopsToArrival) {
+            this.graph = graph;
+            this.arrival = arrival;
+            this.hopsToArrival = hopsToArrival;
+            this.visited = new boolean[graph.getAirports().size()];
+        }
+
+        void visit(int airport,
+                   int legsLeft) {
+            if (legsLeft == 0) {
+                result.add(new InterconnectingRoute(List.copyOf(path)));
+                return;
+            }
+
+            if (legsLeft == 2) {
+                visitOneStop(airport);
+                return;
+            }
+
+            visited[airport] = true;
+            var routes = graph.getOutbound(airport);
+            var destinations = graph.getOutboundAirports(airport);
+            for (int i = 0; i < routes.length && !isFull(); i++) {
+                int next = destinations[i];
+                if (!canReachArrival(next, legsLeft - 1) || visited[next]) {
+                    continue;
+                }
+
+                path.add(routes[i]);
+                visit(next, legsLeft - 1);
+                path.remove(path.size() - 1);
+            }
+            visited[airport] = false;
+        }
 
-        directRouteBuilder.build(request, routes).ifPresent(result::add);
+        /**
+         * Last two legs of the path come from the one-stop index of the graph instead of another two levels of search.
+         */
+        void visitOneStop(int airport) {
+            var hubs = graph.getOneStop(airport, arrival);
+            for (int i = 0; i < hubs.size() && !isFull(); i++) {
+                if (visited[hubs.getHub(i)]) {
+                    continue;
+                }
 
-        if (request.getMaxStops() == 1) {
-            result.addAll(oneStopRouteBuilder.build(request, routes));
+                path.add(hubs.getFirstLeg(i));
+                path.add(hubs.getSecondLeg(i));
+                result.add(new InterconnectingRoute(List.copyOf(path)));
+                path.remove(path.size() - 1);
+                path.remove(path.size() - 1);
+            }
         }
 
-        return result;
+        /**
+         * The path must land exactly on arrival, passing through it is not a valid route.
+         */
+        boolean canReachArrival(int airport,
+                                int legsLeft) {
+            if (hopsToArrival[airport] > legsLeft) {
+                return false;
+            }
+
+            return legsLeft == 0 || airport != arrival;
+        }
+
+        boolean isFull() {
+            return result.size() >= config.getMaxRouteCandidates();
+        }
     }
 }
@@ -0,0 +1,50 @@
+package test.maksim.flights.catalog;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dense int ids of the airports of a catalog snapshot, from 0 to {@code size() - 1} in airport code order.
+ * Ids are only meaningful within the snapshot they were assigned in, codes stay the external identity.
+ */
+public class AirportRegistry {
+
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> ids;
+    private final String[] codes;
+
+    private AirportRegistry(String[] codes) {
+        this.codes = codes;
+        this.ids = new HashMap<>(codes.length * 2);
+        for (int i = 0; i < codes.length; i++) {
+            ids.put(codes[i], i);
+        }
+    }
+
+    public static AirportRegistry of(Collection<String> codes) {
+        return new AirportRegistry(codes.stream()
+                .distinct()
+                .sorted()
+                .toArray(String[]::new));
+    }
+
+    /**
+     * @return id of the airport or {@link #UNKNOWN} if there is no such airport in the catalog
+     */
+    public int getId(String code) {
+        return code == null ? UNKNOWN : ids.getOrDefault(code, UNKNOWN);
+    }
+
+    /**
+     * @return the single instance of the airport code shared by all routes of the catalog
+     */
+    public String getCode(int id) {
+        return codes[id];
+    }
+
+    public int size() {
+        return codes.length;
+    }
+}
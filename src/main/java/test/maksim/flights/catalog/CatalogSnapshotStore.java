@@ -0,0 +1,257 @@
+package test.maksim.flights.catalog;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import test.maksim.flights.Config;
+import test.maksim.flights.domain.Route;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.domain.TimetableKey;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Persists the routes catalog and the cached timetables to a binary file, so a restarted instance
+ * serves from the last snapshot instead of waiting for the upstream services.
+ * The file is written to a temporary file and moved in place, and memory-mapped on load.
+ * Only the route fields filled by {@link test.maksim.flights.parser.RoutesResponseParser} are stored.
+ * Disabled unless {@code snapshot.path} is set.
+ */
+@Component
+@Slf4j
+public class CatalogSnapshotStore {
+
+    private static final int MAGIC = 0x464C534E;
+    private static final int VERSION = 3;
+    private static final int NO_STRING = -1;
+
+    private final AsyncCache<TimetableKey, Timetable> timetableCache;
+    private final Path path;
+    private final Duration timetablesMaxAge;
+    private final Duration timetablesLifetime;
+
+    public CatalogSnapshotStore(AsyncCache<TimetableKey, Timetable> timetableCache,
+                                @Value("${snapshot.path:}") String path,
+                                Config config) {
+        this.timetableCache = timetableCache;
+        this.path = path.isBlank() ? null : Paths.get(path);
+        this.timetablesMaxAge = Duration.ofMinutes(config.getSchedulesCacheTtlMinutes());
+        this.timetablesLifetime = timetablesMaxAge.plusMinutes(config.getSchedulesCacheStaleMinutes());
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * Writes routes of the catalog and timetables of the cache which are loaded, in-flight requests are skipped.
+     * Every timetable keeps the time it was written to the cache.
+     */
+    public void save(RouteCatalogSnapshot catalog) {
+        if (!isEnabled() || catalog.isEmpty()) {
+            return;
+        }
+
+        var timetables = Map.copyOf(timetableCache.synchronous().asMap());
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            var temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                write(out, catalog, timetables);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Catalog snapshot saved to {}, {} routes, {} timetables", path, catalog.getRoutes().size(), timetables.size());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to save catalog snapshot to {}", path, e);
+        }
+    }
+
+    /**
+     * Puts timetables of the snapshot which are younger than the cache TTL into the cache, with the age they had
+     * when saved, so they become stale and expire at the same time as if the instance had not been restarted.
+     *
+     * @return routes catalog of the snapshot, empty if there is no readable snapshot
+     */
+    public Optional<RouteCatalogSnapshot> load() {
+        if (!isEnabled() || !Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.of(read(buffer));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to load catalog snapshot from {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    private void write(DataOutputStream out,
+                       RouteCatalogSnapshot catalog,
+                       Map<TimetableKey, Timetable> timetables) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (var route : catalog.getRoutes()) {
+            index(strings, route.getAirportFrom());
+            index(strings, route.getAirportTo());
+            index(strings, route.getConnectingAirport());
+            index(strings, route.getOperator());
+        }
+        for (var key : timetables.keySet()) {
+            index(strings, key.getFrom());
+            index(strings, key.getTo());
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(catalog.getLoadedAt().toEpochMilli());
+        var savedAt = Instant.now();
+        out.writeLong(savedAt.toEpochMilli());
+
+        out.writeInt(strings.size());
+        for (var string : strings.keySet()) {
+            var bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+
+        out.writeInt(catalog.getRoutes().size());
+        for (var route : catalog.getRoutes()) {
+            out.writeInt(strings.get(route.getAirportFrom()));
+            out.writeInt(strings.get(route.getAirportTo()));
+            out.writeInt(indexOf(strings, route.getConnectingAirport()));
+            out.writeInt(indexOf(strings, route.getOperator()));
+        }
+
+        out.writeInt(timetables.size());
+        for (var entry : timetables.entrySet()) {
+            var key = entry.getKey();
+            var timetable = entry.getValue();
+            out.writeInt(strings.get(key.getFrom()));
+            out.writeInt(strings.get(key.getTo()));
+            out.writeInt(key.getMonth().getYear());
+            out.writeByte(key.getMonth().getMonthValue());
+            out.writeLong(getWrittenAt(key, savedAt).toEpochMilli());
+            out.writeInt(timetable.size());
+            for (int i = 0; i < timetable.size(); i++) {
+                out.writeInt(timetable.getDepartureMinute(i));
+                out.writeShort(timetable.getDurationMinutes(i));
+                out.writeInt(timetable.getFlightNumber(i));
+            }
+        }
+    }
+
+    private RouteCatalogSnapshot read(ByteBuffer in) throws IOException {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not a catalog snapshot of version " + VERSION);
+        }
+        var routesLoadedAt = Instant.ofEpochMilli(in.getLong());
+        var savedAt = Instant.ofEpochMilli(in.getLong());
+
+        var strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            var bytes = new byte[in.getShort() & 0xFFFF];
+            in.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int routesCount = in.getInt();
+        List<Route> routes = new ArrayList<>(routesCount);
+        for (int i = 0; i < routesCount; i++) {
+            var route = new Route();
+            route.setAirportFrom(strings[in.getInt()]);
+            route.setAirportTo(strings[in.getInt()]);
+            route.setConnectingAirport(stringAt(strings, in.getInt()));
+            route.setOperator(stringAt(strings, in.getInt()));
+            routes.add(route);
+        }
+
+        var now = Instant.now();
+        int timetablesCount = in.getInt();
+        int restored = 0;
+        for (int i = 0; i < timetablesCount; i++) {
+            var key = new TimetableKey(strings[in.getInt()], strings[in.getInt()], YearMonth.of(in.getInt(), in.get()));
+            var age = Duration.between(Instant.ofEpochMilli(in.getLong()), now);
+            int size = in.getInt();
+            var builder = Timetable.builder(size);
+            for (int j = 0; j < size; j++) {
+                builder.add(in.getInt(), in.getShort(), in.getInt());
+            }
+            if (age.compareTo(timetablesMaxAge) < 0) {
+                restore(key, builder.build(), age);
+                restored++;
+            }
+        }
+
+        log.info("Catalog snapshot of age {} loaded from {}, {} routes, {} of {} timetables", Duration.between(savedAt, now),
+                path, routes.size(), restored, timetablesCount);
+
+        return new RouteCatalogSnapshot(unmodifiableList(routes), RouteGraph.of(routes), routesLoadedAt);
+    }
+
+    /**
+     * The cache expires a timetable a fixed lifetime after it was written, so it was written that lifetime before
+     * it expires. A cache without variable expiration gives no age, the timetable counts as just written.
+     */
+    private Instant getWrittenAt(TimetableKey key,
+                                 Instant now) {
+        var remaining = timetableCache.synchronous().policy().expireVariably()
+                .map(it -> it.getExpiresAfter(key, TimeUnit.MILLISECONDS))
+                .filter(OptionalLong::isPresent);
+
+        return remaining.isEmpty()
+                ? now
+                : now.minus(timetablesLifetime).plusMillis(remaining.get().getAsLong());
+    }
+
+    private void restore(TimetableKey key,
+                         Timetable timetable,
+                         Duration age) {
+        var expiration = timetableCache.synchronous().policy().expireVariably();
+        if (expiration.isPresent()) {
+            expiration.get().put(key, timetable, timetablesLifetime.minus(age));
+        } else {
+            timetableCache.put(key, CompletableFuture.completedFuture(timetable));
+        }
+    }
+
+    private static void index(Map<String, Integer> strings,
+                              String string) {
+        if (string != null) {
+            strings.putIfAbsent(string, strings.size());
+        }
+    }
+
+    private static String stringAt(String[] strings,
+                                   int index) {
+        return index == NO_STRING ? null : strings[index];
+    }
+
+    private static int indexOf(Map<String, Integer> strings,
+                               String string) {
+        return string == null ? NO_STRING : strings.get(string);
+    }
+}
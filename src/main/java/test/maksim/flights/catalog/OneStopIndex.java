@@ -0,0 +1,119 @@
+package test.maksim.flights.catalog;
+
+import test.maksim.flights.domain.Route;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One-stop connections of a {@link RouteGraph} by origin and destination airport id.
+ * Connections of an origin to all destinations are computed together on the first lookup from the origin
+ * and kept for the lifetime of the graph, so the graph build stays linear in the number of routes.
+ * Concurrent first lookups may compute the same origin twice, the results are equal.
+ */
+public class OneStopIndex {
+
+    private final RouteGraph graph;
+    private final AtomicReferenceArray<Hubs[]> byOrigin;
+
+    OneStopIndex(RouteGraph graph) {
+        this.graph = graph;
+        this.byOrigin = new AtomicReferenceArray<>(graph.getAirports().size());
+    }
+
+    /**
+     * @return hubs connecting origin and destination, in the order of origin outbound routes
+     */
+    public Hubs get(int origin,
+                    int destination) {
+        if (origin == AirportRegistry.UNKNOWN || destination == AirportRegistry.UNKNOWN) {
+            return Hubs.EMPTY;
+        }
+
+        var byDestination = byOrigin.get(origin);
+        if (byDestination == null) {
+            byDestination = compute(origin);
+            byOrigin.set(origin, byDestination);
+        }
+
+        return byDestination[destination];
+    }
+
+    private Hubs[] compute(int origin) {
+        var firstLegs = graph.getOutbound(origin);
+        var hubs = graph.getOutboundAirports(origin);
+
+        var counts = new int[graph.getAirports().size()];
+        for (int hub : hubs) {
+            if (hub != origin) {
+                for (int destination : graph.getOutboundAirports(hub)) {
+                    if (destination != origin && destination != hub) {
+                        counts[destination]++;
+                    }
+                }
+            }
+        }
+
+        var result = new Hubs[counts.length];
+        for (int destination = 0; destination < counts.length; destination++) {
+            result[destination] = counts[destination] == 0 ? Hubs.EMPTY : new Hubs(counts[destination]);
+        }
+        for (int i = 0; i < hubs.length; i++) {
+            int hub = hubs[i];
+            if (hub == origin) {
+                continue;
+            }
+
+            var secondLegs = graph.getOutbound(hub);
+            var destinations = graph.getOutboundAirports(hub);
+            for (int j = 0; j < destinations.length; j++) {
+                int destination = destinations[j];
+                if (destination != origin && destination != hub) {
+                    result[destination].add(hub, firstLegs[i], secondLegs[j]);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public static class Hubs {
+
+        static final Hubs EMPTY = new Hubs(0);
+
+        private final int[] hubs;
+        private final Route[] firstLegs;
+        private final Route[] secondLegs;
+        private int size;
+
+        private Hubs(int capacity) {
+            hubs = new int[capacity];
+            firstLegs = new Route[capacity];
+            secondLegs = new Route[capacity];
+        }
+
+        private void add(int hub,
+                         Route firstLeg,
+                         Route secondLeg) {
+            hubs[size] = hub;
+            firstLegs[size] = firstLeg;
+            secondLegs[size] = secondLeg;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getHub(int index) {
+            return hubs[index];
+        }
+
+        public Route getFirstLeg(int index) {
+            return firstLegs[index];
+        }
+
+        public Route getSecondLeg(int index) {
+            return secondLegs[index];
+        }
+    }
+}
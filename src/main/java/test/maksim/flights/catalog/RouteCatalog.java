@@ -0,0 +1,203 @@
+package test.maksim.flights.catalog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import test.maksim.flights.constants.MetricNames;
+import test.maksim.flights.domain.Route;
+import test.maksim.flights.service.RoutesRequestService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.unmodifiableList;
+import static test.maksim.flights.constants.OperatorNames.RYANAIR;
+
+/**
+ * In-memory routes network. Loaded on startup and refreshed in background,
+ * a new snapshot is swapped atomically so readers never see a partially built catalog.
+ * If refresh fails the last good snapshot keeps being served.
+ * Concurrent refreshes share a single request to the routes service.
+ * With {@link CatalogSnapshotStore} enabled, startup serves the persisted snapshot and refreshes it in background
+ * on the task scheduler, which runs the scheduled refreshes too.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RouteCatalog {
+
+    private final RoutesRequestService routesRequestService;
+    private final MeterRegistry meterRegistry;
+    private final CatalogSnapshotStore snapshotStore;
+    private final TaskScheduler taskScheduler;
+
+    private final AtomicReference<RouteCatalogSnapshot> snapshot = new AtomicReference<>(RouteCatalogSnapshot.EMPTY);
+    private final AtomicReference<CompletableFuture<RouteCatalogSnapshot>> inFlightRefresh = new AtomicReference<>();
+    private Counter refreshFailures;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("routes.catalog.age", this, it -> it.getAge().toSeconds())
+                .description("Seconds since the served routes snapshot was loaded")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("routes.catalog.size", this, it -> it.snapshot.get().getRoutes().size())
+                .description("Number of routes in the served snapshot")
+                .register(meterRegistry);
+        refreshFailures = Counter.builder("routes.catalog.refresh.failures")
+                .description("Number of failed routes catalog refreshes")
+                .register(meterRegistry);
+
+        var persisted = snapshotStore.load();
+        if (persisted.isPresent() && !persisted.get().isEmpty()) {
+            snapshot.set(persisted.get());
+            taskScheduler.schedule(this::refresh, Instant.now());
+        } else {
+            refresh();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        persist();
+    }
+
+    public RouteGraph getGraph() {
+        return getSnapshot().getGraph();
+    }
+
+    public RouteCatalogSnapshot getSnapshot() {
+        var current = snapshot.get();
+        if (current.isEmpty()) {
+            return refreshCoalesced();
+        }
+
+        return current;
+    }
+
+    /**
+     * Non-blocking variant of {@link #getSnapshot()}, an empty catalog is loaded on the task scheduler
+     * or by the refresh in progress, and the snapshot is emitted on the parallel scheduler.
+     */
+    public Mono<RouteCatalogSnapshot> getSnapshotAsync() {
+        return Mono.defer(() -> {
+            var current = snapshot.get();
+            if (!current.isEmpty()) {
+                return Mono.just(current);
+            }
+
+            return Mono.fromFuture(refreshInBackground()).publishOn(Schedulers.parallel());
+        });
+    }
+
+    /**
+     * @return age of the served snapshot, {@link Duration#ZERO} if nothing is loaded yet
+     */
+    public Duration getAge() {
+        var current = snapshot.get();
+        if (current.isEmpty()) {
+            return Duration.ZERO;
+        }
+
+        return Duration.between(current.getLoadedAt(), Instant.now());
+    }
+
+    @Scheduled(initialDelayString = "${routes.refresh.interval.ms:600000}",
+               fixedDelayString = "${routes.refresh.interval.ms:600000}")
+    public void refresh() {
+        refreshCoalesced();
+    }
+
+    /**
+     * Saves the served snapshot together with cached timetables, no-op if the snapshot store is disabled.
+     */
+    @Scheduled(initialDelayString = "${snapshot.interval.ms:300000}",
+               fixedDelayString = "${snapshot.interval.ms:300000}")
+    public void persist() {
+        var current = snapshot.get();
+        if (!current.isEmpty()) {
+            snapshotStore.save(current);
+        }
+    }
+
+    /**
+     * @return snapshot served after the refresh, joins the refresh in progress if there is one
+     */
+    private RouteCatalogSnapshot refreshCoalesced() {
+        var created = new CompletableFuture<RouteCatalogSnapshot>();
+        var inFlight = inFlightRefresh.compareAndExchange(null, created);
+        if (inFlight != null) {
+            return inFlight.join();
+        }
+
+        return completeRefresh(created);
+    }
+
+    /**
+     * @return future of the snapshot served after the refresh, of the refresh in progress if there is one
+     */
+    private CompletableFuture<RouteCatalogSnapshot> refreshInBackground() {
+        var created = new CompletableFuture<RouteCatalogSnapshot>();
+        var inFlight = inFlightRefresh.compareAndExchange(null, created);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        try {
+            taskScheduler.schedule(() -> completeRefresh(created), Instant.now());
+        } catch (TaskRejectedException e) {
+            onRefreshFailed(e.getMessage(), e);
+            created.complete(snapshot.get());
+            inFlightRefresh.set(null);
+        }
+
+        return created;
+    }
+
+    private RouteCatalogSnapshot completeRefresh(CompletableFuture<RouteCatalogSnapshot> refresh) {
+        try {
+            requestRoutes();
+        } finally {
+            refresh.complete(snapshot.get());
+            inFlightRefresh.set(null);
+        }
+
+        return snapshot.get();
+    }
+
+    private void requestRoutes() {
+        try {
+            List<Route> routes = meterRegistry.timer(MetricNames.SEARCH_STAGE, MetricNames.STAGE_TAG, "routes")
+                    .record(() -> routesRequestService.request(null, singleton(RYANAIR)));
+            if (routes.isEmpty()) {
+                onRefreshFailed("no routes received", null);
+                return;
+            }
+
+            snapshot.set(new RouteCatalogSnapshot(unmodifiableList(routes), RouteGraph.of(routes), Instant.now()));
+            log.info("Routes catalog refreshed, {} routes", routes.size());
+        } catch (Exception e) {
+            onRefreshFailed(e.getMessage(), e);
+        }
+    }
+
+    private void onRefreshFailed(String reason,
+                                 Exception e) {
+        refreshFailures.increment();
+        log.warn("Failed to refresh routes catalog: {}, serving snapshot of age {}", reason, getAge(), e);
+    }
+}
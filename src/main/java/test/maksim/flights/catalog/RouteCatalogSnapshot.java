@@ -0,0 +1,27 @@
+package test.maksim.flights.catalog;
+
+import lombok.Data;
+import test.maksim.flights.domain.Route;
+
+import java.time.Instant;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Immutable view of the routes network loaded at {@link #loadedAt}.
+ * The {@link RouteGraph} is built once per snapshot.
+ */
+@Data
+public class RouteCatalogSnapshot {
+
+    public static final RouteCatalogSnapshot EMPTY = new RouteCatalogSnapshot(emptyList(), RouteGraph.EMPTY, Instant.EPOCH);
+
+    private final List<Route> routes;
+    private final RouteGraph graph;
+    private final Instant loadedAt;
+
+    public boolean isEmpty() {
+        return routes.isEmpty();
+    }
+}
@@ -0,0 +1,199 @@
+package test.maksim.flights.catalog;
+
+import test.maksim.flights.domain.Route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Immutable routes network indexed by airport id of its {@link AirportRegistry}.
+ * Keeps outbound and inbound adjacency arrays, so neighbours of an airport are found in O(degree)
+ * and searches compare airports as ints. Codes are only used to look up the ids of a request.
+ * The given routes are referenced as is, loaders are expected to share code instances across routes.
+ */
+public class RouteGraph {
+
+    public static final RouteGraph EMPTY = of(emptyList());
+
+    private static final Route[] NO_ROUTES = new Route[0];
+    private static final int[] NO_AIRPORTS = new int[0];
+
+    private final AirportRegistry airports;
+    private final Route[][] outbound;
+    private final int[][] outboundAirports;
+    private final Route[][] inbound;
+    private final int[][] inboundAirports;
+    private final int size;
+    private final OneStopIndex oneStopIndex;
+
+    private RouteGraph(AirportRegistry airports,
+                       Route[][] outbound,
+                       int[][] outboundAirports,
+                       Route[][] inbound,
+                       int[][] inboundAirports,
+                       int size) {
+        this.airports = airports;
+        this.outbound = outbound;
+        this.outboundAirports = outboundAirports;
+        this.inbound = inbound;
+        this.inboundAirports = inboundAirports;
+        this.size = size;
+        this.oneStopIndex = new OneStopIndex(this);
+    }
+
+    public static RouteGraph of(Collection<Route> routes) {
+        Set<String> codes = new HashSet<>();
+        for (var route : routes) {
+            codes.add(route.getAirportFrom());
+            codes.add(route.getAirportTo());
+        }
+        var airports = AirportRegistry.of(codes);
+
+        List<List<Route>> outbound = new ArrayList<>();
+        List<List<Route>> inbound = new ArrayList<>();
+        for (int i = 0; i < airports.size(); i++) {
+            outbound.add(new ArrayList<>());
+            inbound.add(new ArrayList<>());
+        }
+        for (var route : routes) {
+            int from = airports.getId(route.getAirportFrom());
+            int to = airports.getId(route.getAirportTo());
+            outbound.get(from).add(route);
+            inbound.get(to).add(route);
+        }
+
+        var outboundRoutes = toArrays(outbound);
+        var inboundRoutes = toArrays(inbound);
+
+        return new RouteGraph(airports,
+                outboundRoutes,
+                toAirports(outboundRoutes, airports, true),
+                inboundRoutes,
+                toAirports(inboundRoutes, airports, false),
+                routes.size());
+    }
+
+    public AirportRegistry getAirports() {
+        return airports;
+    }
+
+    public List<Route> getOutbound(String airport) {
+        int id = airports.getId(airport);
+
+        return id == AirportRegistry.UNKNOWN ? emptyList() : List.of(outbound[id]);
+    }
+
+    public List<Route> getInbound(String airport) {
+        int id = airports.getId(airport);
+
+        return id == AirportRegistry.UNKNOWN ? emptyList() : List.of(inbound[id]);
+    }
+
+    /**
+     * @return routes from the airport, the array must not be modified
+     */
+    public Route[] getOutbound(int airport) {
+        return airport == AirportRegistry.UNKNOWN ? NO_ROUTES : outbound[airport];
+    }
+
+    /**
+     * @return destination ids of {@link #getOutbound(int)} in the same order, the array must not be modified
+     */
+    public int[] getOutboundAirports(int airport) {
+        return airport == AirportRegistry.UNKNOWN ? NO_AIRPORTS : outboundAirports[airport];
+    }
+
+    public Optional<Route> getRoute(String from,
+                                    String to) {
+        int fromId = airports.getId(from);
+        int toId = airports.getId(to);
+        var destinations = getOutboundAirports(fromId);
+        for (int i = 0; i < destinations.length; i++) {
+            if (destinations[i] == toId) {
+                return Optional.of(outbound[fromId][i]);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return hubs with a route from {@code origin} and a route to {@code destination}, found with a single lookup
+     * once the origin was indexed
+     */
+    public OneStopIndex.Hubs getOneStop(int origin,
+                                        int destination) {
+        return oneStopIndex.get(origin, destination);
+    }
+
+    /**
+     * Breadth-first search over inbound routes.
+     *
+     * @return minimal number of legs needed to reach {@code airport} from every airport by id,
+     * {@code Integer.MAX_VALUE} for airports which cannot reach it within {@code maxHops}
+     */
+    public int[] getHopsTo(int airport,
+                           int maxHops) {
+        var hops = new int[airports.size()];
+        Arrays.fill(hops, Integer.MAX_VALUE);
+        if (airport == AirportRegistry.UNKNOWN) {
+            return hops;
+        }
+
+        var queue = new int[airports.size()];
+        int head = 0;
+        int tail = 0;
+        hops[airport] = 0;
+        queue[tail++] = airport;
+        while (head < tail) {
+            int current = queue[head++];
+            int distance = hops[current] + 1;
+            if (distance > maxHops) {
+                continue;
+            }
+
+            for (int from : inboundAirports[current]) {
+                if (hops[from] == Integer.MAX_VALUE) {
+                    hops[from] = distance;
+                    queue[tail++] = from;
+                }
+            }
+        }
+
+        return hops;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static Route[][] toArrays(List<List<Route>> adjacency) {
+        return adjacency.stream()
+                .map(it -> it.toArray(NO_ROUTES))
+                .toArray(Route[][]::new);
+    }
+
+    private static int[][] toAirports(Route[][] adjacency,
+                                      AirportRegistry airports,
+                                      boolean destinations) {
+        var result = new int[adjacency.length][];
+        for (int i = 0; i < adjacency.length; i++) {
+            result[i] = Arrays.stream(adjacency[i])
+                    .mapToInt(it -> airports.getId(destinations ? it.getAirportTo() : it.getAirportFrom()))
+                    .toArray();
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,17 @@
+package test.maksim.flights.constants;
+
+/**
+ * Threads which run searches and their schedules fan-out.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Fixed pools of platform threads, concurrency is limited by pool size.
+     */
+    PLATFORM,
+
+    /**
+     * A virtual thread per task, concurrency is limited by a semaphore. Requires Java 21 or later.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,20 @@
+package test.maksim.flights.constants;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class MetricNames {
+
+    /**
+     * Timer of a search stage, tagged with {@code stage}.
+     */
+    public static final String SEARCH_STAGE = "flights.search.stage";
+
+    public static final String STAGE_TAG = "stage";
+
+    /**
+     * Counter of searches which ran out of time and returned partial results.
+     */
+    public static final String SEARCH_PARTIAL = "flights.search.partial";
+
+}
@@ -0,0 +1,17 @@
+package test.maksim.flights.constants;
+
+/**
+ * What an executor does with a task when all its threads are busy and its queue is full.
+ */
+public enum RejectionPolicy {
+
+    /**
+     * The task is rejected, a search rejected this way is answered with 503 Service Unavailable.
+     */
+    ABORT,
+
+    /**
+     * The task runs on the submitting thread, which slows the submitter down.
+     */
+    CALLER_RUNS
+}
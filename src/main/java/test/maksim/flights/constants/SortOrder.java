@@ -0,0 +1,48 @@
+package test.maksim.flights.constants;
+
+import test.maksim.flights.rest.dto.Flight;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Order of the found flights, ties keep the order in which flights were found.
+ */
+public enum SortOrder {
+
+    /**
+     * Direct flights first, then flights with one stop and so on.
+     */
+    STOPS(Comparator.comparingInt(Flight::getStops)),
+
+    /**
+     * Earliest arrival to the destination first.
+     */
+    ARRIVAL(Comparator.comparing(SortOrder::getArrivalTime)
+            .thenComparingInt(Flight::getStops)),
+
+    /**
+     * Shortest time from the first departure to the last arrival first.
+     */
+    DURATION(Comparator.comparing(SortOrder::getDuration)
+            .thenComparingInt(Flight::getStops));
+
+    private final Comparator<Flight> comparator;
+
+    SortOrder(Comparator<Flight> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Flight> getComparator() {
+        return comparator;
+    }
+
+    private static LocalDateTime getArrivalTime(Flight flight) {
+        return flight.getLegs().get(flight.getLegs().size() - 1).getArrivalDateTime();
+    }
+
+    private static Duration getDuration(Flight flight) {
+        return Duration.between(flight.getLegs().get(0).getDepartureDateTime(), getArrivalTime(flight));
+    }
+}
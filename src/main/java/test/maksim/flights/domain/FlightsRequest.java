@@ -2,7 +2,9 @@ package test.maksim.flights.domain;
 
 import lombok.Builder;
 import lombok.Data;
+import test.maksim.flights.constants.SortOrder;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Data
@@ -14,4 +16,26 @@ public class FlightsRequest {
     private final LocalDateTime departureDateTime;
     private final LocalDateTime arrivalDateTime;
     private final int maxStops;
+    /**
+     * Maximal number of flights in the result, {@code null} for all found flights.
+     */
+    private final Integer limit;
+    @Builder.Default
+    private final SortOrder sort = SortOrder.STOPS;
+    /**
+     * Time the search may take, flights of routes not built by then are left out of the result.
+     * {@code null} for no deadline.
+     */
+    private final Duration timeout;
+
+    public boolean isLimited() {
+        return limit != null;
+    }
+
+    /**
+     * @return {@link #limit} or {@link Integer#MAX_VALUE} if the result is not limited
+     */
+    public int getResultsLimit() {
+        return isLimited() ? limit : Integer.MAX_VALUE;
+    }
 }
@@ -3,6 +3,7 @@ package test.maksim.flights.domain;
 import lombok.Builder;
 import lombok.Data;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Data
@@ -13,4 +14,8 @@ public class ScheduleRequest {
     private final String to;
     private final LocalDateTime dateTime;
     private final LocalDateTime dateTimeEnd;
+    /**
+     * Time the caller waits for the schedules, {@code null} to wait until the upstream responds.
+     */
+    private final Duration timeout;
 }
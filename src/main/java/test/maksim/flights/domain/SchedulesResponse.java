@@ -5,6 +5,11 @@ import lombok.Data;
 import java.time.LocalTime;
 import java.util.List;
 
+/**
+ * Month response of the schedules service, describes the upstream format.
+ * {@link test.maksim.flights.parser.SchedulesResponseParser} streams responses without binding them to this class,
+ * which is used to write responses of the upstream stubs in tests and benchmarks.
+ */
 @Data
 public class SchedulesResponse {
 
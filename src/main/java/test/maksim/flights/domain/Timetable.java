@@ -0,0 +1,236 @@
+package test.maksim.flights.domain;
+
+import test.maksim.flights.utils.DateTimeUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Flights of a route sorted by departure time, stored in columns of primitives.
+ * Times are epoch minutes of the airports local time, as the schedules service returns them.
+ * Timetables are immutable, a window of a single month shares the columns of the month.
+ */
+public final class Timetable {
+
+    public static final Timetable EMPTY = new Timetable(new int[0], new short[0], new int[0], 0, 0);
+
+    private final int[] departures;
+    private final short[] durations;
+    private final int[] flightNumbers;
+    private final int offset;
+    private final int size;
+
+    private Timetable(int[] departures,
+                      short[] durations,
+                      int[] flightNumbers,
+                      int offset,
+                      int size) {
+        this.departures = departures;
+        this.durations = durations;
+        this.flightNumbers = flightNumbers;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public static Timetable of(Collection<FlightSchedule> schedules) {
+        var builder = builder(schedules.size());
+        schedules.forEach(it -> builder.add(it.getDepartureTime(), it.getArrivalTime(), 0));
+
+        return builder.build();
+    }
+
+    /**
+     * @return flights of the months which depart after {@code departureAfter} and arrive not later than {@code arrivalEnd}
+     */
+    public static Timetable window(List<Timetable> months,
+                                   LocalDateTime departureAfter,
+                                   LocalDateTime arrivalEnd) {
+        int startMinute = DateTimeUtils.toEpochMinute(departureAfter);
+        int endMinute = DateTimeUtils.toEpochMinute(arrivalEnd);
+        if (months.size() == 1) {
+            var month = months.get(0);
+            int from = month.indexOfFirstDepartureAfter(startMinute);
+            int to = month.indexOfFirstDepartureAfter(endMinute);
+            if (month.isArrivedBefore(from, to, endMinute)) {
+                return month.slice(from, to);
+            }
+        }
+
+        var builder = builder(0);
+        for (var month : months) {
+            int to = month.indexOfFirstDepartureAfter(endMinute);
+            for (int i = month.indexOfFirstDepartureAfter(startMinute); i < to; i++) {
+                if (month.getArrivalMinute(i) <= endMinute) {
+                    builder.add(month.getDepartureMinute(i), month.getDurationMinutes(i), month.getFlightNumber(i));
+                }
+            }
+        }
+
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getDepartureMinute(int index) {
+        return departures[offset + index];
+    }
+
+    public int getDurationMinutes(int index) {
+        return durations[offset + index];
+    }
+
+    public int getArrivalMinute(int index) {
+        return getDepartureMinute(index) + getDurationMinutes(index);
+    }
+
+    public int getFlightNumber(int index) {
+        return flightNumbers[offset + index];
+    }
+
+    public LocalDateTime getDepartureTime(int index) {
+        return DateTimeUtils.fromEpochMinute(getDepartureMinute(index));
+    }
+
+    public LocalDateTime getArrivalTime(int index) {
+        return DateTimeUtils.fromEpochMinute(getArrivalMinute(index));
+    }
+
+    public FlightSchedule get(int index) {
+        return new FlightSchedule(getDepartureTime(index), getArrivalTime(index));
+    }
+
+    /**
+     * @return index of the first flight departing after the minute, or {@link #size()} if there is none
+     */
+    public int indexOfFirstDepartureAfter(int minute) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getDepartureMinute(middle) <= minute) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private boolean isArrivedBefore(int from,
+                                    int to,
+                                    int minute) {
+        for (int i = from; i < to; i++) {
+            if (getArrivalMinute(i) > minute) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private Timetable slice(int from,
+                            int to) {
+        if (from == 0 && to == size) {
+            return this;
+        }
+
+        return new Timetable(departures, durations, flightNumbers, offset + from, to - from);
+    }
+
+    public static class Builder {
+
+        private int[] departures;
+        private short[] durations;
+        private int[] flightNumbers;
+        private int size;
+
+        private Builder(int expectedSize) {
+            departures = new int[Math.max(expectedSize, 8)];
+            durations = new short[departures.length];
+            flightNumbers = new int[departures.length];
+        }
+
+        public Builder add(LocalDateTime departureTime,
+                           LocalDateTime arrivalTime,
+                           int flightNumber) {
+            int departureMinute = DateTimeUtils.toEpochMinute(departureTime);
+
+            return add(departureMinute, DateTimeUtils.toEpochMinute(arrivalTime) - departureMinute, flightNumber);
+        }
+
+        public Builder add(int departureMinute,
+                           int durationMinutes,
+                           int flightNumber) {
+            if (durationMinutes < 0 || durationMinutes > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Unsupported flight duration: " + durationMinutes);
+            }
+            if (size == departures.length) {
+                departures = Arrays.copyOf(departures, size * 2);
+                durations = Arrays.copyOf(durations, size * 2);
+                flightNumbers = Arrays.copyOf(flightNumbers, size * 2);
+            }
+
+            departures[size] = departureMinute;
+            durations[size] = (short) durationMinutes;
+            flightNumbers[size] = flightNumber;
+            size++;
+
+            return this;
+        }
+
+        /**
+         * Flights may be added in any order, they are sorted by departure time keeping the order of equal ones.
+         */
+        public Timetable build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            if (isSorted()) {
+                return new Timetable(Arrays.copyOf(departures, size), Arrays.copyOf(durations, size),
+                        Arrays.copyOf(flightNumbers, size), 0, size);
+            }
+
+            // departure in the high bits and index in the low ones, equal departures keep the order of addition
+            var order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = (long) departures[i] << 32 | i;
+            }
+            Arrays.sort(order);
+
+            var sortedDepartures = new int[size];
+            var sortedDurations = new short[size];
+            var sortedFlightNumbers = new int[size];
+            for (int i = 0; i < size; i++) {
+                int index = (int) order[i];
+                sortedDepartures[i] = departures[index];
+                sortedDurations[i] = durations[index];
+                sortedFlightNumbers[i] = flightNumbers[index];
+            }
+
+            return new Timetable(sortedDepartures, sortedDurations, sortedFlightNumbers, 0, size);
+        }
+
+        private boolean isSorted() {
+            for (int i = 1; i < size; i++) {
+                if (departures[i - 1] > departures[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package test.maksim.flights.domain;
+
+import lombok.Data;
+
+import java.time.YearMonth;
+
+/**
+ * Month timetable of a single route, the unit the schedules service responds with.
+ */
+@Data
+public class TimetableKey {
+
+    private final String from;
+    private final String to;
+    private final YearMonth month;
+}
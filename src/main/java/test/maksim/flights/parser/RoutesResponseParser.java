@@ -0,0 +1,199 @@
+package test.maksim.flights.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.springframework.stereotype.Component;
+import test.maksim.flights.domain.Route;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Parses a response of the routes service chunk by chunk, as it is received, into the routes which match the filter.
+ * Routes which do not match are discarded as soon as their object ends, only the fields used by the
+ * service are kept and routes of a response share the instances of equal airport codes.
+ */
+@Component
+public class RoutesResponseParser {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public List<Route> parse(byte[] body,
+                             String connectingAirport,
+                             Collection<String> operators) {
+        var session = start(connectingAirport, operators);
+        session.feed(body, 0, body.length);
+
+        return session.finish();
+    }
+
+    /**
+     * @return parsing of a single response, chunks are fed in the order they are received
+     */
+    public Session start(String connectingAirport,
+                         Collection<String> operators) {
+        try {
+            return new Session(jsonFactory.createNonBlockingByteArrayParser(), connectingAirport, operators);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse routes", e);
+        }
+    }
+
+    /**
+     * Keeps the parser state between chunks, only the routes and the part of the chunk not parsed yet are held.
+     * Not thread-safe.
+     */
+    public static class Session {
+
+        private static final int ARRAY_DEPTH = 1;
+        private static final int ROUTE_DEPTH = 2;
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final String connectingAirport;
+        private final Collection<String> operators;
+        private final Map<String, String> airports = new HashMap<>();
+        private final List<Route> routes = new ArrayList<>();
+        private int depth;
+        private boolean ended;
+        private String from;
+        private String to;
+        private String connecting;
+        private String operator;
+
+        private Session(JsonParser parser,
+                        String connectingAirport,
+                        Collection<String> operators) {
+            this.parser = parser;
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.connectingAirport = connectingAirport;
+            this.operators = operators;
+        }
+
+        /**
+         * The chunk is parsed before returning, so its array may be reused afterwards.
+         */
+        public void feed(byte[] chunk,
+                         int offset,
+                         int end) {
+            try {
+                feeder.feedInput(chunk, offset, end);
+                readAvailable();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to parse routes", e);
+            }
+        }
+
+        /**
+         * @return routes of the response, once all chunks are fed
+         */
+        public List<Route> finish() {
+            try (parser) {
+                feeder.endOfInput();
+                readAvailable();
+                if (!ended) {
+                    throw new IOException("Unexpected end of routes array");
+                }
+
+                return routes;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to parse routes", e);
+            }
+        }
+
+        private void readAvailable() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                read(token);
+            }
+        }
+
+        private void read(JsonToken token) throws IOException {
+            switch (depth) {
+                case 0:
+                    if (ended || token != JsonToken.START_ARRAY) {
+                        throw new IOException("Expected routes array but was " + token);
+                    }
+                    depth++;
+                    break;
+                case ARRAY_DEPTH:
+                    if (token == JsonToken.END_ARRAY) {
+                        depth--;
+                        ended = true;
+                    } else if (token == JsonToken.START_OBJECT) {
+                        depth++;
+                        from = null;
+                        to = null;
+                        connecting = null;
+                        operator = null;
+                    } else {
+                        throw new IOException("Expected route object but was " + token);
+                    }
+                    break;
+                case ROUTE_DEPTH:
+                    if (token == JsonToken.END_OBJECT) {
+                        depth--;
+                        addIfMatches();
+                    } else if (token.isStructStart()) {
+                        depth++;
+                    } else if (token.isScalarValue()) {
+                        readField(parser.getCurrentName());
+                    }
+                    break;
+                default:
+                    // fields of a route which are objects or arrays are skipped
+                    if (token.isStructStart()) {
+                        depth++;
+                    } else if (token.isStructEnd()) {
+                        depth--;
+                    }
+            }
+        }
+
+        private void readField(String field) throws IOException {
+            switch (field) {
+                case "airportFrom":
+                    from = readAirport();
+                    break;
+                case "airportTo":
+                    to = readAirport();
+                    break;
+                case "connectingAirport":
+                    connecting = readAirport();
+                    break;
+                case "operator":
+                    operator = parser.getValueAsString();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private String readAirport() throws IOException {
+            var code = parser.getValueAsString();
+
+            return code == null ? null : airports.computeIfAbsent(code, it -> it);
+        }
+
+        private void addIfMatches() {
+            if (from != null && to != null
+                    && Objects.equals(connectingAirport, connecting)
+                    && operators.contains(operator)) {
+                var route = new Route();
+                route.setAirportFrom(from);
+                route.setAirportTo(to);
+                route.setConnectingAirport(connecting);
+                route.setOperator(operator);
+                routes.add(route);
+            }
+        }
+    }
+}
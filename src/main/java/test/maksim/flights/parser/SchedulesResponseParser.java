@@ -0,0 +1,207 @@
+package test.maksim.flights.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.stereotype.Component;
+import test.maksim.flights.domain.SchedulesResponse;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.utils.DateTimeUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Streams a month response of the schedules service, shaped as {@link SchedulesResponse},
+ * into a {@link Timetable} without building the response objects.
+ */
+@Component
+public class SchedulesResponseParser {
+
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+    private static final int NO_DAY = -1;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * @param firstDay days of the month before it are skipped without reading their flights
+     */
+    public Timetable parse(byte[] body,
+                           YearMonth month,
+                           int firstDay) {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            var builder = Timetable.builder(month.lengthOfMonth() * 4);
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                var value = parser.nextToken();
+                if ("days".equals(field) && value == JsonToken.START_ARRAY) {
+                    parseDays(parser, month, firstDay, builder);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return builder.build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse schedules of " + month, e);
+        }
+    }
+
+    private void parseDays(JsonParser parser,
+                           YearMonth month,
+                           int firstDay,
+                           Timetable.Builder builder) throws IOException {
+        var flights = new DayFlights();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+            flights.clear();
+            int day = NO_DAY;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                var value = parser.nextToken();
+                if ("day".equals(field)) {
+                    day = parser.getValueAsInt(NO_DAY);
+                } else if ("flights".equals(field) && value == JsonToken.START_ARRAY && (day == NO_DAY || day >= firstDay)) {
+                    parseFlights(parser, flights);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (day != NO_DAY && day >= firstDay && day <= month.lengthOfMonth()) {
+                int dayStartMinute = DateTimeUtils.toEpochMinute(month.atDay(day).atStartOfDay());
+                for (int i = 0; i < flights.size; i++) {
+                    builder.add(dayStartMinute + flights.departures[i], flights.durations[i], flights.numbers[i]);
+                }
+            }
+        }
+        expect(parser, token, JsonToken.END_ARRAY);
+    }
+
+    /**
+     * Flights are kept until the day object ends, as the day may follow them.
+     */
+    private void parseFlights(JsonParser parser,
+                              DayFlights flights) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+            int number = 0;
+            int departure = NO_DAY;
+            int arrival = NO_DAY;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "number":
+                        number = parser.getValueAsInt(0);
+                        break;
+                    case "departureTime":
+                        departure = parseMinuteOfDay(parser);
+                        break;
+                    case "arrivalTime":
+                        arrival = parseMinuteOfDay(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            if (departure == NO_DAY || arrival == NO_DAY) {
+                throw new IOException("Flight without departure or arrival time at " + parser.getCurrentLocation());
+            }
+            flights.add(departure, calculateFlightDuration(departure, arrival), number);
+        }
+        expect(parser, token, JsonToken.END_ARRAY);
+    }
+
+    private int calculateFlightDuration(int departure,
+                                        int arrival) {
+        /*
+            If arrival time is on next day, the service returns response like:
+            {
+                ...
+                departureTime: "21:10",
+                arrivalTime: "00:25"
+            }
+         */
+        if (departure > arrival) {
+            return MINUTES_PER_DAY - departure + arrival;
+        }
+
+        return arrival - departure;
+    }
+
+    /**
+     * Reads "HH:mm" or "HH:mm:ss" from the parser buffer, seconds are ignored.
+     */
+    private int parseMinuteOfDay(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new IOException("Expected time at " + parser.getCurrentLocation());
+        }
+
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length < 5 || chars[offset + 2] != ':') {
+            throw new IOException("Malformed time: " + parser.getText());
+        }
+
+        int hour = digit(chars[offset]) * 10 + digit(chars[offset + 1]);
+        int minute = digit(chars[offset + 3]) * 10 + digit(chars[offset + 4]);
+        if (hour > 23 || minute > 59) {
+            throw new IOException("Malformed time: " + parser.getText());
+        }
+
+        return hour * MINUTES_PER_HOUR + minute;
+    }
+
+    private int digit(char c) throws IOException {
+        if (c < '0' || c > '9') {
+            throw new IOException("Malformed time digit: " + c);
+        }
+
+        return c - '0';
+    }
+
+    private void expect(JsonParser parser,
+                        JsonToken actual,
+                        JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but was " + actual + " at " + parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Flights of one day as minutes of the day, reused between days.
+     */
+    private static class DayFlights {
+
+        private int[] departures = new int[16];
+        private int[] durations = new int[16];
+        private int[] numbers = new int[16];
+        private int size;
+
+        void add(int departure,
+                 int duration,
+                 int number) {
+            if (size == departures.length) {
+                departures = Arrays.copyOf(departures, size * 2);
+                durations = Arrays.copyOf(durations, size * 2);
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+
+            departures[size] = departure;
+            durations[size] = duration;
+            numbers[size] = number;
+            size++;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -4,18 +4,34 @@ import io.swagger.annotations.Api;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import test.maksim.flights.Config;
+import test.maksim.flights.constants.SortOrder;
 import test.maksim.flights.domain.FlightsRequest;
 import test.maksim.flights.rest.dto.Flight;
+import test.maksim.flights.rest.dto.FlightsQuery;
+import test.maksim.flights.rest.dto.FlightsResult;
 import test.maksim.flights.service.FlightsService;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.stream.Collectors.toList;
 
 @RestController
 @RequestMapping("/flights")
@@ -25,46 +41,135 @@ import java.util.List;
 public class FlightsController {
 
     /**
-     * TODO future improvements: add exception handling.
+     * {@code true} if the search ran out of time and the flights are the ones found by then.
      */
+    public static final String PARTIAL_RESULTS_HEADER = "X-Partial-Results";
 
     private final AsyncListenableTaskExecutor serviceExecutor;
     private final FlightsService service;
     private final Config config;
 
     @GetMapping("/interconnections")
-    public List<Flight> getInterconnections(@RequestParam("departure") String departure,
-                                            @RequestParam("arrival") String arrival,
-                                            @RequestParam("departureDateTime") String departureDateTime,
-                                            @RequestParam("arrivalDateTime") String arrivalDateTime,
-                                            @RequestParam(value = "maxStops", required = false) Integer maxStops) {
-        var request = FlightsRequest.builder()
-                .departureAirport(departure)
-                .arrivalAirport(arrival)
-                .departureDateTime(LocalDateTime.parse(departureDateTime))
-                .arrivalDateTime(LocalDateTime.parse(arrivalDateTime))
-                .maxStops(maxStops == null ? config.getDefaultMaxStops() : maxStops)
+    public ResponseEntity<List<Flight>> getInterconnections(@RequestParam("departure") String departure,
+                                                            @RequestParam("arrival") String arrival,
+                                                            @RequestParam("departureDateTime") String departureDateTime,
+                                                            @RequestParam("arrivalDateTime") String arrivalDateTime,
+                                                            @RequestParam(value = "maxStops", required = false) Integer maxStops,
+                                                            @RequestParam(value = "limit", required = false) Integer limit,
+                                                            @RequestParam(value = "sort", required = false) SortOrder sort,
+                                                            @RequestParam(value = "timeoutMs", required = false) Long timeoutMs) {
+        var request = createRequest(departure, arrival, departureDateTime, arrivalDateTime, maxStops, limit, sort, timeoutMs);
+
+        return toResponse(service.getFlightsResult(request));
+    }
+
+    @GetMapping("/interconnections/async")
+    public ListenableFuture<ResponseEntity<List<Flight>>> getInterconnectionsAsync(@RequestParam("departure") String departure,
+                                                                                   @RequestParam("arrival") String arrival,
+                                                                                   @RequestParam("departureDateTime") String departureDateTime,
+                                                                                   @RequestParam("arrivalDateTime") String arrivalDateTime,
+                                                                                   @RequestParam(value = "maxStops", required = false) Integer maxStops,
+                                                                                   @RequestParam(value = "limit", required = false) Integer limit,
+                                                                                   @RequestParam(value = "sort", required = false) SortOrder sort,
+                                                                                   @RequestParam(value = "timeoutMs", required = false) Long timeoutMs) {
+        var request = createRequest(departure, arrival, departureDateTime, arrivalDateTime, maxStops, limit, sort, timeoutMs);
+
+        return serviceExecutor.submitListenable(() -> toResponse(service.getFlightsResult(request)));
+    }
+
+    @GetMapping("/interconnections/reactive")
+    public Mono<ResponseEntity<List<Flight>>> getInterconnectionsReactive(@RequestParam("departure") String departure,
+                                                                          @RequestParam("arrival") String arrival,
+                                                                          @RequestParam("departureDateTime") String departureDateTime,
+                                                                          @RequestParam("arrivalDateTime") String arrivalDateTime,
+                                                                          @RequestParam(value = "maxStops", required = false) Integer maxStops,
+                                                                          @RequestParam(value = "limit", required = false) Integer limit,
+                                                                          @RequestParam(value = "sort", required = false) SortOrder sort,
+                                                                          @RequestParam(value = "timeoutMs", required = false) Long timeoutMs) {
+        var request = createRequest(departure, arrival, departureDateTime, arrivalDateTime, maxStops, limit, sort, timeoutMs);
+
+        return service.getFlightsResultReactive(request).map(this::toResponse);
+    }
+
+    /**
+     * Flights as newline delimited JSON ({@code application/stream+json}) or server-sent events,
+     * every flight is written as soon as its route is built. The stream ends at the timeout.
+     */
+    @GetMapping(value = "/interconnections/stream",
+                produces = {MediaType.APPLICATION_STREAM_JSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Flight> getInterconnectionsStream(@RequestParam("departure") String departure,
+                                                  @RequestParam("arrival") String arrival,
+                                                  @RequestParam("departureDateTime") String departureDateTime,
+                                                  @RequestParam("arrivalDateTime") String arrivalDateTime,
+                                                  @RequestParam(value = "maxStops", required = false) Integer maxStops,
+                                                  @RequestParam(value = "limit", required = false) Integer limit,
+                                                  @RequestParam(value = "timeoutMs", required = false) Long timeoutMs) {
+        var request = createRequest(departure, arrival, departureDateTime, arrivalDateTime, maxStops, limit, null, timeoutMs);
+
+        return service.getFlightsStream(request);
+    }
+
+    @PostMapping("/interconnections/batch")
+    public Mono<List<FlightsResult>> getInterconnectionsBatch(@RequestBody List<FlightsQuery> queries) {
+        log.info("Received batch of {} requests", queries.size());
+        var requests = queries.stream()
+                .map(it -> createRequest(it.getDeparture(), it.getArrival(), it.getDepartureDateTime(), it.getArrivalDateTime(),
+                        it.getMaxStops(), it.getLimit(), it.getSort(), it.getTimeoutMs()))
+                .collect(toList());
+
+        return service.getFlightsBatch(requests);
+    }
+
+    /**
+     * Searches rejected by the concurrency limit or by a saturated executor.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> handleRejected(RejectedExecutionException e) {
+        log.warn("Request rejected: {}", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(config.getRetryAfterSeconds()))
                 .build();
+    }
+
+    private ResponseEntity<List<Flight>> toResponse(FlightsResult result) {
+        return ResponseEntity.ok()
+                .header(PARTIAL_RESULTS_HEADER, String.valueOf(result.isPartial()))
+                .body(result.getFlights());
+    }
+
+    private FlightsRequest createRequest(String departure,
+                                         String arrival,
+                                         String departureDateTime,
+                                         String arrivalDateTime,
+                                         Integer maxStops,
+                                         Integer limit,
+                                         SortOrder sort,
+                                         Long timeoutMs) {
+        var request = createRequest(departure, arrival, LocalDateTime.parse(departureDateTime),
+                LocalDateTime.parse(arrivalDateTime), maxStops, limit, sort, timeoutMs);
         log.info("Received request: {}", request);
 
-        return service.getFlights(request);
+        return request;
     }
 
-    @GetMapping("/interconnections/async")
-    public ListenableFuture<List<Flight>> getInterconnectionsAsync(@RequestParam("departure") String departure,
-                                                                   @RequestParam("arrival") String arrival,
-                                                                   @RequestParam("departureDateTime") String departureDateTime,
-                                                                   @RequestParam("arrivalDateTime") String arrivalDateTime,
-                                                                   @RequestParam(value = "maxStops", required = false) Integer maxStops) {
-        var request = FlightsRequest.builder()
+    private FlightsRequest createRequest(String departure,
+                                         String arrival,
+                                         LocalDateTime departureDateTime,
+                                         LocalDateTime arrivalDateTime,
+                                         Integer maxStops,
+                                         Integer limit,
+                                         SortOrder sort,
+                                         Long timeoutMs) {
+        return FlightsRequest.builder()
                 .departureAirport(departure)
                 .arrivalAirport(arrival)
-                .departureDateTime(LocalDateTime.parse(departureDateTime))
-                .arrivalDateTime(LocalDateTime.parse(arrivalDateTime))
+                .departureDateTime(departureDateTime)
+                .arrivalDateTime(arrivalDateTime)
                 .maxStops(maxStops == null ? config.getDefaultMaxStops() : maxStops)
+                .limit(limit)
+                .sort(sort == null ? SortOrder.STOPS : sort)
+                .timeout(Duration.ofMillis(timeoutMs == null ? config.getDefaultSearchTimeoutMs() : timeoutMs))
                 .build();
-        log.info("Received request: {}", request);
-
-        return serviceExecutor.submitListenable(() -> service.getFlights(request));
     }
 }
@@ -0,0 +1,22 @@
+package test.maksim.flights.rest.dto;
+
+import lombok.Data;
+import test.maksim.flights.constants.SortOrder;
+
+import java.time.LocalDateTime;
+
+/**
+ * A search of the batch endpoint, fields have the meaning of the interconnections query parameters.
+ */
+@Data
+public class FlightsQuery {
+
+    private String departure;
+    private String arrival;
+    private LocalDateTime departureDateTime;
+    private LocalDateTime arrivalDateTime;
+    private Integer maxStops;
+    private Integer limit;
+    private SortOrder sort;
+    private Long timeoutMs;
+}
@@ -0,0 +1,34 @@
+package test.maksim.flights.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Result of a search, either flights or the error of the search.
+ * Flights are partial if the search ran out of time before all routes were built.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FlightsResult {
+
+    private final List<Flight> flights;
+    private final String error;
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private final boolean partial;
+
+    public static FlightsResult of(List<Flight> flights) {
+        return new FlightsResult(flights, null, false);
+    }
+
+    public static FlightsResult partial(List<Flight> flights) {
+        return new FlightsResult(flights, null, true);
+    }
+
+    public static FlightsResult failed(String error) {
+        return new FlightsResult(emptyList(), error, false);
+    }
+}
@@ -3,21 +3,40 @@ package test.maksim.flights.service;
 import test.maksim.flights.Config;
 import test.maksim.flights.builder.FlightsBuilder;
 import test.maksim.flights.builder.InterconnectingRoutesBuilder;
+import test.maksim.flights.catalog.RouteCatalog;
+import test.maksim.flights.catalog.RouteGraph;
+import test.maksim.flights.constants.MetricNames;
+import test.maksim.flights.constants.SortOrder;
 import test.maksim.flights.domain.*;
 import test.maksim.flights.rest.dto.Flight;
+import test.maksim.flights.rest.dto.FlightsResult;
+import test.maksim.flights.utils.AdaptiveLimiter;
+import test.maksim.flights.utils.Deadline;
+import test.maksim.flights.utils.TopN;
 import test.maksim.flights.validator.RequestValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static test.maksim.flights.constants.OperatorNames.RYANAIR;
-import static java.time.temporal.ChronoUnit.HOURS;
 import static java.util.Collections.emptyList;
-import static java.util.Collections.singleton;
+import static java.util.Collections.unmodifiableList;
 import static java.util.stream.Collectors.toList;
 
 @Service
@@ -25,103 +44,388 @@ import static java.util.stream.Collectors.toList;
 @Slf4j
 public class FlightsService {
 
-    private final RoutesRequestService routesRequestService;
+    private static final String STAGE_ROUTES_SEARCH = "routes-search";
+    private static final String STAGE_SCHEDULES = "schedules";
+    private static final String STAGE_ASSEMBLY = "assembly";
+
+    private final RouteCatalog routeCatalog;
     private final SchedulesRequestService schedulesRequestService;
     private final InterconnectingRoutesBuilder interconnectingRoutesBuilder;
     private final RequestValidator requestValidator;
     private final FlightsBuilder flightsBuilder;
-    private final Config config;
     private final AsyncTaskExecutor schedulesExecutor;
+    private final Config config;
+    private final MeterRegistry meterRegistry;
+    private final AdaptiveLimiter searchLimiter;
 
     public List<Flight> getFlights(FlightsRequest request) {
-        requestValidator.validate(request);
+        return getFlightsResult(request).getFlights();
+    }
+
+    /**
+     * Flights of the routes built before the request timeout, the result is partial if some routes were not.
+     *
+     * @throws RejectedExecutionException if the service is saturated, the same for all search variants
+     */
+    public FlightsResult getFlightsResult(FlightsRequest request) {
+        acquireSearch();
+        long start = System.nanoTime();
+        FlightsResult result = null;
+        try {
+            requestValidator.validate(request);
+            var deadline = Deadline.after(request.getTimeout());
+            List<InterconnectingRoute> interconnectingRoutes = buildInterconnectingRoutes(request, routeCatalog.getGraph());
+            result = interconnectingRoutes.isEmpty()
+                    ? FlightsResult.of(emptyList())
+                    : requestSchedulesAndBuildFlights(request, interconnectingRoutes, deadline);
+
+            return result;
+        } finally {
+            releaseSearch(result != null, result != null && result.isPartial(), start);
+        }
+    }
+
+    public Mono<List<Flight>> getFlightsReactive(FlightsRequest request) {
+        return getFlightsResultReactive(request).map(FlightsResult::getFlights);
+    }
+
+    /**
+     * Non-blocking variant of {@link #getFlightsResult(FlightsRequest)}, schedules of all routes and legs
+     * are requested concurrently without holding a thread while waiting for responses, including the routes
+     * catalog if it is not loaded yet. Flights of routes are offered to the best flights in route order,
+     * as in the blocking variant, so equal flights of different routes do not depend on which route is built first.
+     */
+    public Mono<FlightsResult> getFlightsResultReactive(FlightsRequest request) {
+        return limited(Mono.defer(() -> {
+            requestValidator.validate(request);
+            var deadline = Deadline.after(request.getTimeout());
+            var partial = new AtomicBoolean();
+            return routeCatalog.getSnapshotAsync()
+                    .map(it -> groupRoutes(request, buildInterconnectingRoutes(request, it.getGraph())))
+                    .flatMap(groups -> {
+                        var best = createTopFlights(request);
+                        return Flux.fromIterable(groups)
+                                .concatMap(group -> Flux.fromIterable(group)
+                                        .flatMapSequential(it -> requestAndBuildOneRouteAsync(request, it, deadline, partial))
+                                        .collectList())
+                                .map(groupFlights -> {
+                                    groupFlights.forEach(it -> it.forEach(best::offer));
+                                    return best.isFull() || partial.get();
+                                })
+                                .takeUntil(done -> done)
+                                .then(Mono.fromCallable(() -> createResult(request, best.toList(), partial.get())));
+                    });
+        }).doOnSuccess(it -> log.info("Finish to build routes for: {}", request)));
+    }
+
+    /**
+     * Streaming variant of {@link #getFlightsReactive(FlightsRequest)}, flights of a route are emitted as soon as
+     * the route and the routes before it are built. Routes are built concurrently and emitted in route order,
+     * so direct flights come first. Flights are not sorted otherwise and a limit takes the first flights in that order,
+     * cancelling requests of the remaining routes.
+     * The stream completes at the request timeout, routes not built by then are left out.
+     */
+    public Flux<Flight> getFlightsStream(FlightsRequest request) {
+        return Flux.defer(() -> {
+            var partial = new AtomicBoolean();
+            var flights = Mono.fromRunnable(() -> requestValidator.validate(request))
+                    .then(routeCatalog.getSnapshotAsync())
+                    .map(it -> buildInterconnectingRoutes(request, it.getGraph()))
+                    .flatMapMany(routes -> {
+                        var deadline = Deadline.after(request.getTimeout());
+                        return Flux.fromIterable(routes)
+                                .flatMapSequential(it -> requestAndBuildOneRouteAsync(request, it, deadline, partial));
+                    })
+                    .flatMapIterable(it -> it);
+
+            return limited((request.isLimited() ? flights.take(request.getLimit()) : flights)
+                    .doOnComplete(() -> log.info("Finish to stream routes for: {}", request)), partial);
+        });
+    }
+
+    /**
+     * Searches of the batch run concurrently, up to {@code batch.concurrency} at a time, and results keep the order
+     * of the requests. Schedules of a route month are requested once for the whole batch: the timetable cache
+     * shares loaded and in-flight months between searches, so the upstream load follows the number of distinct
+     * months rather than the number of searches. A failed search does not fail the batch, its result holds the error,
+     * searches rejected by the concurrency limit included.
+     */
+    public Mono<List<FlightsResult>> getFlightsBatch(List<FlightsRequest> requests) {
+        if (requests.size() > config.getMaxBatchSize()) {
+            throw new IllegalArgumentException("Batch size > " + config.getMaxBatchSize() + " is not supported");
+        }
+
+        return Flux.fromIterable(requests)
+                .flatMapSequential(request -> getFlightsResultReactive(request)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to search flights of batch request: {}", request, e);
+                            return Mono.just(FlightsResult.failed(e.getMessage()));
+                        }), config.getBatchConcurrency())
+                .collectList()
+                .doOnSuccess(it -> log.info("Finish to build routes for batch of {} requests", requests.size()));
+    }
 
-        List<Route> routes = routesRequestService.request(null, singleton(RYANAIR));
-        log.info("Received {} routes", routes.size());
-        if (routes.isEmpty()) {
+    private void acquireSearch() {
+        if (!searchLimiter.tryAcquire()) {
+            throw new RejectedExecutionException("Too many concurrent searches, limit is " + searchLimiter.getLimit());
+        }
+    }
+
+    /**
+     * The search holds a permit of the limiter from subscription until it completes, fails or is cancelled.
+     */
+    private Mono<FlightsResult> limited(Mono<FlightsResult> search) {
+        return Mono.defer(() -> {
+            acquireSearch();
+            long start = System.nanoTime();
+            var result = new AtomicReference<FlightsResult>();
+            return search
+                    .doOnNext(result::set)
+                    .doFinally(it -> releaseSearch(it == SignalType.ON_COMPLETE && result.get() != null,
+                            result.get() != null && result.get().isPartial(), start));
+        });
+    }
+
+    private <T> Flux<T> limited(Flux<T> search,
+                                AtomicBoolean partial) {
+        return Flux.defer(() -> {
+            acquireSearch();
+            long start = System.nanoTime();
+            return search.doFinally(it -> releaseSearch(it == SignalType.ON_COMPLETE, partial.get(), start));
+        });
+    }
+
+    /**
+     * Only completed searches are latency samples of the limiter, failed ones are often rejected right away
+     * by validation, and a partial search took as long as the timeout of its request.
+     */
+    private void releaseSearch(boolean completed,
+                               boolean partial,
+                               long start) {
+        long latency = System.nanoTime() - start;
+        if (!completed) {
+            searchLimiter.releaseIgnored();
+        } else if (partial) {
+            searchLimiter.releaseTimedOut(latency);
+        } else {
+            searchLimiter.release(latency);
+        }
+    }
+
+    /**
+     * The request must be validated before, in particular before its timeout is turned into a deadline.
+     */
+    private List<InterconnectingRoute> buildInterconnectingRoutes(FlightsRequest request,
+                                                                  RouteGraph graph) {
+        log.debug("Using {} routes from catalog", graph.size());
+        if (graph.isEmpty()) {
             return emptyList();
         }
 
-        List<InterconnectingRoute> interconnectingRoutes = interconnectingRoutesBuilder.build(request, routes);
+        List<InterconnectingRoute> interconnectingRoutes = getStageTimer(STAGE_ROUTES_SEARCH)
+                .record(() -> interconnectingRoutesBuilder.build(request, graph));
         log.debug("Route map: {}", interconnectingRoutes);
 
-        return requestSchedulesAndBuildFlights(request, interconnectingRoutes);
+        return interconnectingRoutes;
+    }
+
+    /**
+     * Every route is built by its own task into its own result, results are merged once all tasks of a group complete
+     * or the deadline passes, whichever is first. Routes not built by the deadline are left out and make the result partial.
+     * Groups are requested one after another until the limit of the best flights or the deadline is reached.
+     */
+    private FlightsResult requestSchedulesAndBuildFlights(FlightsRequest request,
+                                                          List<InterconnectingRoute> interconnectingRoutes,
+                                                          Deadline deadline) {
+        var best = createTopFlights(request);
+        boolean partial = false;
+        for (var group : groupRoutes(request, interconnectingRoutes)) {
+            List<CompletableFuture<List<Flight>>> routesFlights = group.stream()
+                    .map(it -> submitOneRoute(request, it, deadline))
+                    .collect(toList());
+
+            awaitAll(routesFlights, deadline);
+            for (var routeFlights : routesFlights) {
+                if (routeFlights.isDone() && !routeFlights.isCompletedExceptionally()) {
+                    routeFlights.join().forEach(best::offer);
+                } else {
+                    partial = true;
+                }
+            }
+            if (partial || best.isFull()) {
+                break;
+            }
+        }
+
+        log.info("Finish to build routes for: {}", request);
+        return createResult(request, best.toList(), partial);
+    }
+
+    private static void awaitAll(List<CompletableFuture<List<Flight>>> futures,
+                                 Deadline deadline) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(deadline.getRemainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // futures not completed in time are checked one by one
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private FlightsResult createResult(FlightsRequest request,
+                                       List<Flight> flights,
+                                       boolean partial) {
+        if (!partial) {
+            return FlightsResult.of(flights);
+        }
+
+        log.warn("Search timed out after {}, returning {} flights found so far: {}", request.getTimeout(), flights.size(), request);
+        meterRegistry.counter(MetricNames.SEARCH_PARTIAL).increment();
+        return FlightsResult.partial(flights);
     }
 
-    private List<Flight> requestSchedulesAndBuildFlights(FlightsRequest request,
+    /**
+     * Routes come ordered by the number of stops. If flights are sorted by stops and limited,
+     * flights of a route can only be better than flights of routes with more stops, so routes are split
+     * by the number of stops and the routes with more stops are not requested once there are enough flights.
+     * Otherwise all routes are requested at once.
+     */
+    private List<List<InterconnectingRoute>> groupRoutes(FlightsRequest request,
                                                          List<InterconnectingRoute> interconnectingRoutes) {
-        Map<InterconnectingRoute, List<Flight>> routeToFlightMap = new HashMap<>();
-        interconnectingRoutes.stream()
-                .map(it -> schedulesExecutor.submit(() -> requestAndBuildOneRoute(request, routeToFlightMap, it)))
-                .collect(toList())
-                .forEach(it -> {
-                    try {
-                        it.get();
-                    } catch (Exception e) {
-                        log.error("Failed to handle route", e);
+        if (!request.isLimited() || request.getSort() != SortOrder.STOPS) {
+            return interconnectingRoutes.isEmpty() ? emptyList() : List.of(interconnectingRoutes);
+        }
+
+        List<List<InterconnectingRoute>> groups = new ArrayList<>();
+        for (var route : interconnectingRoutes) {
+            if (groups.isEmpty() || getStops(last(groups).get(0)) != getStops(route)) {
+                groups.add(new ArrayList<>());
+            }
+            last(groups).add(route);
+        }
+
+        return groups;
+    }
+
+    private TopN<Flight> createTopFlights(FlightsRequest request) {
+        return new TopN<>(request.getResultsLimit(), request.getSort().getComparator());
+    }
+
+    private static int getStops(InterconnectingRoute interconnectingRoute) {
+        return interconnectingRoute.getRoutes().size() - 1;
+    }
+
+    private static <T> T last(List<T> list) {
+        return list.get(list.size() - 1);
+    }
+
+    /**
+     * Completes with flights of one route as soon as it is built, or with no flights if the route failed.
+     * A route which ran out of time fails.
+     */
+    private CompletableFuture<List<Flight>> submitOneRoute(FlightsRequest request,
+                                                           InterconnectingRoute interconnectingRoute,
+                                                           Deadline deadline) {
+        return CompletableFuture.supplyAsync(() -> requestAndBuildOneRoute(request, interconnectingRoute, deadline), schedulesExecutor)
+                .exceptionally(e -> {
+                    if (isTimeout(e)) {
+                        throw new CompletionException(e);
                     }
+                    log.error("Failed to handle route: {}", interconnectingRoute, e);
+                    return emptyList();
                 });
-
-        log.info("Finish to build routes for: {}", request);
-        return routeToFlightMap.values().stream()
-                .flatMap(Collection::stream)
-                .filter(it -> it.getStops() == it.getLegs().size() - 1)
-                .sorted(Comparator.comparingInt(Flight::getStops))
-                .collect(toList());
     }
 
-    private InterconnectingRoute requestAndBuildOneRoute(FlightsRequest request,
-                                                         Map<InterconnectingRoute, List<Flight>> routeToFlightMap,
-                                                         InterconnectingRoute interconnectingRoute) {
-        LocalDateTime nextTime = null;
-        for (var route : interconnectingRoute.getRoutes()) {
-            if (nextTime == null) {
-                nextTime = request.getDepartureDateTime();
+    private static boolean isTimeout(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException) {
+                return true;
             }
+        }
 
-            var scheduleRequest = ScheduleRequest.builder()
-                    .from(route.getAirportFrom())
-                    .to(route.getAirportTo())
-                    .dateTime(nextTime)
-                    .dateTimeEnd(request.getArrivalDateTime())
-                    .build();
+        return false;
+    }
+
+    private List<Flight> requestAndBuildOneRoute(FlightsRequest request,
+                                                 InterconnectingRoute interconnectingRoute,
+                                                 Deadline deadline) {
+        List<Timetable> legsTimetables = new ArrayList<>();
+        for (var route : interconnectingRoute.getRoutes()) {
+            var scheduleRequest = createScheduleRequest(request, route, deadline);
 
             log.debug("Sending schedule request: {}", scheduleRequest);
-            List<FlightSchedule> flightSchedules = schedulesRequestService.request(scheduleRequest);
-            log.debug("Received schedules: {}", flightSchedules);
+            Timetable timetable = getStageTimer(STAGE_SCHEDULES).record(() -> schedulesRequestService.request(scheduleRequest));
+            log.debug("Received {} schedules", timetable.size());
 
-            if (flightSchedules.isEmpty()) {
-                log.debug("flightSchedules are empty, removing route");
-                routeToFlightMap.remove(interconnectingRoute);
-                break;
+            if (timetable.isEmpty()) {
+                log.debug("flightSchedules are empty, skipping route");
+                return emptyList();
             }
+            legsTimetables.add(timetable);
+        }
 
-            List<Flight> flights = routeToFlightMap.get(interconnectingRoute);
-            if (flights == null) {
-                flights = flightsBuilder.createFlights(
-                        request,
-                        interconnectingRoute.getRoutes().size() - 1,
-                        route,
-                        flightSchedules
-                );
-                log.debug("Primary flight size: {}", flights.size());
-                routeToFlightMap.put(interconnectingRoute, flights);
-            } else {
-                flightsBuilder.addAvailableLegs(route, flightSchedules, flights);
-            }
+        List<Flight> flights = getStageTimer(STAGE_ASSEMBLY)
+                .record(() -> flightsBuilder.build(request, interconnectingRoute, legsTimetables));
+        log.debug("Built {} flights for route: {}", flights.size(), interconnectingRoute);
 
-            nextTime = calculateNextTime(flightSchedules);
-        }
+        return unmodifiableList(flights);
+    }
+
+    /**
+     * A route which ran out of time gives no flights and sets the partial flag.
+     * Responses complete on the event loop of the upstream client, flights are assembled on the parallel scheduler,
+     * so the CPU-bound scan does not hold up responses of other searches.
+     */
+    private Mono<List<Flight>> requestAndBuildOneRouteAsync(FlightsRequest request,
+                                                            InterconnectingRoute interconnectingRoute,
+                                                            Deadline deadline,
+                                                            AtomicBoolean partial) {
+        return Flux.fromIterable(interconnectingRoute.getRoutes())
+                .flatMapSequential(it -> timed(STAGE_SCHEDULES,
+                        schedulesRequestService.requestAsync(createScheduleRequest(request, it, deadline))))
+                .collectList()
+                .publishOn(Schedulers.parallel())
+                .map(legsTimetables -> {
+                    if (legsTimetables.stream().anyMatch(Timetable::isEmpty)) {
+                        log.debug("flightSchedules are empty, skipping route");
+                        return Collections.<Flight>emptyList();
+                    }
 
-        return interconnectingRoute;
+                    return getStageTimer(STAGE_ASSEMBLY)
+                            .record(() -> flightsBuilder.build(request, interconnectingRoute, legsTimetables));
+                })
+                .onErrorResume(TimeoutException.class, e -> {
+                    log.debug("Route timed out: {}", interconnectingRoute);
+                    partial.set(true);
+                    return Mono.just(emptyList());
+                });
+    }
+
+    /**
+     * Stages of a search: routes between the airports, schedules of a leg and flights assembly of a route.
+     */
+    private Timer getStageTimer(String stage) {
+        return meterRegistry.timer(MetricNames.SEARCH_STAGE, MetricNames.STAGE_TAG, stage);
     }
 
-    private LocalDateTime calculateNextTime(List<FlightSchedule> flightSchedules) {
-        var minArrivalTime = flightSchedules.stream()
-                .map(FlightSchedule::getArrivalTime)
-                .min(LocalDateTime::compareTo)
-                .orElseThrow();
+    private <T> Mono<T> timed(String stage,
+                              Mono<T> mono) {
+        return Mono.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            return mono.doFinally(it -> sample.stop(getStageTimer(stage)));
+        });
+    }
 
-        return minArrivalTime.plus(config.getMinStopDuration(), HOURS);
+    private ScheduleRequest createScheduleRequest(FlightsRequest request,
+                                                  Route route,
+                                                  Deadline deadline) {
+        return ScheduleRequest.builder()
+                .from(route.getAirportFrom())
+                .to(route.getAirportTo())
+                .dateTime(request.getDepartureDateTime())
+                .dateTimeEnd(request.getArrivalDateTime())
+                .timeout(deadline.getRemaining())
+                .build();
     }
 }
@@ -2,40 +2,72 @@ package test.maksim.flights.service;
 
 import test.maksim.flights.Config;
 import test.maksim.flights.domain.Route;
+import test.maksim.flights.parser.RoutesResponseParser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Stream;
 
 import static java.util.Collections.emptyList;
-import static java.util.stream.Collectors.toList;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RoutesRequestService {
 
-    private final RestTemplate restTemplate;
+    private static final String UPSTREAM = "routes";
+
+    private final WebClient webClient;
     private final Config config;
+    private final RoutesResponseParser routesResponseParser;
+    private final UpstreamCallPolicy upstreamCallPolicy;
 
     public List<Route> request(String connectingAirport,
                                Collection<String> operators) {
+        return requestAsync(connectingAirport, operators).block();
+    }
+
+    /**
+     * The body is parsed chunk by chunk as it is received, it is never held as a whole.
+     * Failed requests are retried by the {@link UpstreamCallPolicy}, a response which fails to parse included.
+     * With an open circuit it fails right away and the {@link test.maksim.flights.catalog.RouteCatalog}
+     * keeps serving its last routes.
+     */
+    public Mono<List<Route>> requestAsync(String connectingAirport,
+                                          Collection<String> operators) {
         log.info("Requesting routes: {}", config.getRoutesServiceUrl());
-        Route[] routeList = restTemplate.getForObject(config.getRoutesServiceUrl(), Route[].class);
+        var response = Mono.defer(() -> {
+            var parsing = routesResponseParser.start(connectingAirport, operators);
+            return webClient.get()
+                    .uri(config.getRoutesServiceUrl())
+                    .retrieve()
+                    .bodyToFlux(DataBuffer.class)
+                    .doOnNext(it -> feed(parsing, it))
+                    .count()
+                    .flatMap(chunks -> chunks == 0 ? Mono.<List<Route>>empty() : Mono.fromCallable(parsing::finish));
+        });
 
-        if (routeList == null) {
-            log.warn("No routes found");
-            return emptyList();
-        }
+        return upstreamCallPolicy.apply(UPSTREAM, response)
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.warn("No routes found");
+                    return emptyList();
+                }));
+    }
 
-        return Stream.of(routeList)
-                .filter(it -> Objects.equals(connectingAirport, it.getConnectingAirport()))
-                .filter(it -> operators.contains(it.getOperator()))
-                .collect(toList());
+    private static void feed(RoutesResponseParser.Session parsing,
+                             DataBuffer chunk) {
+        try {
+            var bytes = new byte[chunk.readableByteCount()];
+            chunk.read(bytes);
+            parsing.feed(bytes, 0, bytes.length);
+        } finally {
+            DataBufferUtils.release(chunk);
+        }
     }
 }
@@ -1,110 +1,168 @@
 package test.maksim.flights.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import test.maksim.flights.Config;
-import test.maksim.flights.domain.FlightSchedule;
 import test.maksim.flights.domain.ScheduleRequest;
-import test.maksim.flights.domain.SchedulesResponse;
-import test.maksim.flights.domain.SchedulesResponse.Day;
-import test.maksim.flights.domain.SchedulesResponse.Schedule;
-import test.maksim.flights.utils.DateTimeUtils;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.domain.TimetableKey;
+import test.maksim.flights.parser.SchedulesResponseParser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
-
-import static java.util.Collections.emptyList;
-import static java.util.stream.Collectors.toList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SchedulesRequestService {
 
-    private static final String PATH_TEMPLATE = "/%s/%s/years/%d/months/%d";
-    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final String PATH_TEMPLATE = "/{from}/{to}/years/{year}/months/{month}";
+    private static final String UPSTREAM = "schedules";
+    /**
+     * Bounds the months requested for a window, whatever the configured max window is.
+     */
+    private static final int MAX_WINDOW_MONTHS = 13;
 
-    private final RestTemplate restTemplate;
+    private final WebClient webClient;
     private final Config config;
+    private final AsyncCache<TimetableKey, Timetable> timetableCache;
+    private final SchedulesResponseParser schedulesResponseParser;
+    private final UpstreamCallPolicy upstreamCallPolicy;
+    private final Set<TimetableKey> revalidating = ConcurrentHashMap.newKeySet();
+
+    public Timetable request(ScheduleRequest request) {
+        return requestAsync(request).block();
+    }
 
-    public List<FlightSchedule> request(ScheduleRequest request) {
-        var fullUrl = config.getSchedulesServiceUrl() + String.format(
-                PATH_TEMPLATE,
-                request.getFrom(),
-                request.getTo(),
-                request.getDateTime().getYear(),
-                request.getDateTime().getMonthValue()
-        );
-
-        try {
-            log.info("Requesting schedules: {}", fullUrl);
-            SchedulesResponse response = restTemplate.getForObject(fullUrl, SchedulesResponse.class);
-            log.debug("Got response: {}", response);
-
-            if (response == null) {
-                log.warn("No schedules found");
-                return emptyList();
+    /**
+     * Requests every month of the window in parallel and merges them in departure time order.
+     * Failed requests give no schedules, while running out of the request timeout fails with {@link TimeoutException}.
+     * A timeout does not cancel the upstream requests, months still load into the cache for later searches.
+     * Months are merged rather than streamed to the {@link test.maksim.flights.builder.FlightsBuilder}: its connection
+     * scan orders connections of all legs by departure, so it cannot start before the first month of every leg is in,
+     * and the merge is a single copy of the window flights, a window within one month shares its columns.
+     * Months after the first {@value #MAX_WINDOW_MONTHS} are not requested.
+     */
+    public Mono<Timetable> requestAsync(ScheduleRequest request) {
+        List<TimetableKey> keys = new ArrayList<>();
+        var lastMonth = YearMonth.from(request.getDateTimeEnd());
+        for (var month = YearMonth.from(request.getDateTime()); !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            if (keys.size() == MAX_WINDOW_MONTHS) {
+                log.warn("Window is longer than {} months, later months are not requested: {}", MAX_WINDOW_MONTHS, request);
+                break;
             }
+            keys.add(new TimetableKey(request.getFrom(), request.getTo(), month));
+        }
 
-            List<Integer> range = IntStream.rangeClosed(
-                    request.getDateTime().getDayOfMonth(),
-                    request.getDateTimeEnd().getDayOfMonth()
-            )
-                    .boxed()
-                    .collect(toList());
-
-            return response.getDays().stream()
-                    .filter(it -> range.contains(it.getDay()))
-                    .flatMap(it -> buildFlightSchedules(it, request))
-                    .filter(it -> it.getDepartureTime().isAfter(request.getDateTime()))
-                    .filter(it -> DateTimeUtils.isBeforeOrEquals(it.getArrivalTime(), request.getDateTimeEnd()))
-                    .collect(toList());
-        } catch (Exception e) {
-            log.error("Failed to request schedules: {}", request, e);
-            return emptyList();
+        var timetable = Flux.fromIterable(keys)
+                .flatMapSequential(this::getTimetable)
+                .collectList()
+                .map(it -> Timetable.window(it, request.getDateTime(), request.getDateTimeEnd()))
+                .onErrorResume(e -> {
+                    log.error("Failed to request schedules: {}", request, e);
+                    return Mono.just(Timetable.EMPTY);
+                });
+
+        return request.getTimeout() == null ? timetable : timetable.timeout(request.getTimeout());
+    }
+
+    /**
+     * Concurrent callers of the same month share the cached future, so only one request is sent.
+     * The cache drops a failed future asynchronously, a caller which still finds one requests the month again.
+     * A timetable older than the TTL is served as is and revalidated in the background.
+     */
+    private Mono<Timetable> getTimetable(TimetableKey key) {
+        return Mono.defer(() -> {
+            var timetable = timetableCache.get(key, (it, executor) -> requestTimetable(it).toFuture());
+            if (timetable.isCompletedExceptionally()) {
+                timetableCache.asMap().remove(key, timetable);
+                timetable = timetableCache.get(key, (it, executor) -> requestTimetable(it).toFuture());
+            } else if (timetable.isDone() && isStale(key)) {
+                revalidate(key);
+            }
+
+            return Mono.fromFuture(timetable);
+        });
+    }
+
+    /**
+     * A timetable is kept for the stale period after the TTL, so it is stale once no more than that period is left.
+     */
+    private boolean isStale(TimetableKey key) {
+        var expiration = timetableCache.synchronous().policy().expireVariably();
+        if (expiration.isEmpty()) {
+            return false;
         }
+
+        var remaining = expiration.get().getExpiresAfter(key, TimeUnit.NANOSECONDS);
+        return remaining.isPresent()
+                && remaining.getAsLong() <= TimeUnit.MINUTES.toNanos(config.getSchedulesCacheStaleMinutes());
     }
 
-    private Stream<FlightSchedule> buildFlightSchedules(Day day,
-                                                        ScheduleRequest request) {
-        return day.getFlights().stream()
-                .map(it -> buildFlightSchedule(day, request, it));
+    /**
+     * Replaces the cached timetable once the request succeeds, a failed request keeps serving the stale one.
+     * Nothing is requested while the circuit is open, so stale timetables are served until the upstream recovers
+     * without a failed revalidation per search.
+     */
+    private void revalidate(TimetableKey key) {
+        if (!upstreamCallPolicy.isCallPermitted(UPSTREAM) || !revalidating.add(key)) {
+            return;
+        }
+
+        requestTimetable(key)
+                .doFinally(it -> revalidating.remove(key))
+                .subscribe(
+                        it -> timetableCache.put(key, CompletableFuture.completedFuture(it)),
+                        e -> log.warn("Failed to revalidate schedules: {}: {}", key, e.toString()));
     }
 
-    private FlightSchedule buildFlightSchedule(Day day,
-                                               ScheduleRequest request,
-                                               Schedule schedule) {
-        var departureDate = LocalDate.of(
-                request.getDateTime().getYear(),
-                request.getDateTime().getMonthValue(),
-                day.getDay()
-        );
-        var departureTime = LocalDateTime.of(departureDate, schedule.getDepartureTime());
-        long flightDurationMin = calculateFlightDuration(schedule);
-
-        return new FlightSchedule(departureTime, departureTime.plus(flightDurationMin, ChronoUnit.MINUTES));
+    /**
+     * @return flights of the month sorted by departure time, failures are not cached.
+     * Days which can no longer be requested are left out. Failed requests are retried by the {@link UpstreamCallPolicy}.
+     * The url is passed as a template, so client metrics are tagged with the template rather than every route month.
+     */
+    private Mono<Timetable> requestTimetable(TimetableKey key) {
+        log.info("Requesting schedules: {}", key);
+        var response = webClient.get()
+                .uri(config.getSchedulesServiceUrl() + PATH_TEMPLATE,
+                        key.getFrom(),
+                        key.getTo(),
+                        key.getMonth().getYear(),
+                        key.getMonth().getMonthValue())
+                .retrieve()
+                .bodyToMono(byte[].class);
+
+        return upstreamCallPolicy.apply(UPSTREAM, response)
+                .doOnNext(it -> log.debug("Got response of {} bytes", it.length))
+                .map(it -> schedulesResponseParser.parse(it, key.getMonth(), getFirstRequestableDay(key.getMonth())))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.warn("No schedules found");
+                    return Timetable.EMPTY;
+                }));
     }
 
-    private long calculateFlightDuration(Schedule schedule) {
-        /*
-            If arrival time is on next day, the service returns response like:
-            {
-                ...
-                departureTime: "21:10",
-                arrivalTime: "00:25"
-            }
-         */
-        if (schedule.getDepartureTime().isAfter(schedule.getArrivalTime())) {
-            return MINUTES_PER_DAY - Duration.between(schedule.getArrivalTime(), schedule.getDepartureTime()).toMinutes();
+    /**
+     * Requests cannot start in the past, a day of margin covers airports whose local date is behind the server one.
+     */
+    private int getFirstRequestableDay(YearMonth month) {
+        var firstDate = LocalDate.now().minusDays(1);
+        var firstMonth = YearMonth.from(firstDate);
+        if (month.isBefore(firstMonth)) {
+            return month.lengthOfMonth() + 1;
         }
 
-        return Duration.between(schedule.getDepartureTime(), schedule.getArrivalTime()).toMinutes();
+        return month.equals(firstMonth) ? firstDate.getDayOfMonth() : 1;
     }
 }
@@ -0,0 +1,246 @@
+package test.maksim.flights.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import test.maksim.flights.utils.CircuitBreaker;
+import test.maksim.flights.utils.RetryBudget;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Circuit breaking, retries and hedging of upstream calls.
+ * Every upstream has a {@link CircuitBreaker}, calls to an upstream with an open circuit fail right away
+ * with {@link CircuitBreaker.OpenException}.
+ * A failed call is retried up to {@code upstream.retry.max} times with exponential backoff and jitter,
+ * client errors are not retried. With {@code upstream.hedge.enabled} a second call is sent if the first one
+ * has not answered within the recent p95 latency, and the first response wins. A failed call does not cancel
+ * the other one, the hedged call fails once both have failed, or right away if the first one fails before the hedge is sent.
+ * Retries and hedged calls of all upstreams share one {@link RetryBudget}, so an upstream outage
+ * cannot multiply the load sent to it.
+ */
+@Component
+@Slf4j
+public class UpstreamCallPolicy {
+
+    static final String LATENCY_METRIC = "upstream.latency";
+    static final String RETRIES_METRIC = "upstream.retries";
+    static final String HEDGES_METRIC = "upstream.hedges";
+    static final String RETRY_BUDGET_METRIC = "upstream.retry.budget.tokens";
+    static final String CIRCUIT_STATE_METRIC = "upstream.circuit.state";
+    static final String UPSTREAM_TAG = "upstream";
+    // the p95 of fewer calls is too noisy to send more calls on
+    private static final int MIN_CALLS_FOR_HEDGING = 20;
+
+    private final int maxRetries;
+    private final long firstBackoffMs;
+    private final long maxBackoffMs;
+    private final boolean hedgingEnabled;
+    private final long minHedgeDelayMs;
+    private final int circuitWindowSize;
+    private final int circuitMinCalls;
+    private final double circuitFailureRate;
+    private final long circuitOpenMs;
+    private final RetryBudget retryBudget;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public UpstreamCallPolicy(@Value("${upstream.retry.max:2}") int maxRetries,
+                              @Value("${upstream.retry.backoff.ms:50}") long firstBackoffMs,
+                              @Value("${upstream.retry.max.backoff.ms:1000}") long maxBackoffMs,
+                              @Value("${upstream.retry.budget.ratio:0.1}") double retryBudgetRatio,
+                              @Value("${upstream.retry.budget.max.tokens:20}") int retryBudgetMaxTokens,
+                              @Value("${upstream.hedge.enabled:false}") boolean hedgingEnabled,
+                              @Value("${upstream.hedge.min.delay.ms:20}") long minHedgeDelayMs,
+                              @Value("${upstream.circuit.window.size:20}") int circuitWindowSize,
+                              @Value("${upstream.circuit.min.calls:10}") int circuitMinCalls,
+                              @Value("${upstream.circuit.failure.rate:0.5}") double circuitFailureRate,
+                              @Value("${upstream.circuit.open.ms:5000}") long circuitOpenMs,
+                              MeterRegistry meterRegistry) {
+        this.maxRetries = maxRetries;
+        this.firstBackoffMs = firstBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelayMs = minHedgeDelayMs;
+        this.circuitWindowSize = circuitWindowSize;
+        this.circuitMinCalls = circuitMinCalls;
+        this.circuitFailureRate = circuitFailureRate;
+        this.circuitOpenMs = circuitOpenMs;
+        this.retryBudget = new RetryBudget(retryBudgetRatio, retryBudgetMaxTokens);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(RETRY_BUDGET_METRIC, retryBudget, RetryBudget::getTokens).register(meterRegistry);
+    }
+
+    /**
+     * @param call cold call, every subscription sends a new request
+     */
+    public <T> Mono<T> apply(String upstream,
+                             Mono<T> call) {
+        var timer = getLatencyTimer(upstream);
+        var circuitBreaker = getCircuitBreaker(upstream);
+        var measured = Mono.defer(() -> {
+            var permit = circuitBreaker.tryAcquire();
+            if (permit == null) {
+                return Mono.<T>error(new CircuitBreaker.OpenException(upstream));
+            }
+
+            var sample = Timer.start(meterRegistry);
+            return call
+                    .doOnSuccess(it -> {
+                        sample.stop(timer);
+                        permit.onSuccess();
+                    })
+                    .doOnError(e -> {
+                        if (isRetryable(e)) {
+                            permit.onFailure();
+                        } else {
+                            permit.onSuccess();
+                        }
+                    })
+                    .doOnCancel(permit::onCancel);
+        });
+
+        return Mono.defer(() -> {
+            retryBudget.deposit();
+            return hedged(upstream, measured, timer)
+                    .retryWhen(errors -> errors.zipWith(Flux.range(1, Integer.MAX_VALUE))
+                            .concatMap(it -> {
+                                var error = it.getT1();
+                                int attempt = it.getT2();
+                                if (attempt > maxRetries || !isRetryable(error) || !retryBudget.tryWithdraw()) {
+                                    return Mono.error(error);
+                                }
+                                log.debug("Retrying {} call, attempt {}: {}", upstream, attempt, error.toString());
+                                meterRegistry.counter(RETRIES_METRIC, UPSTREAM_TAG, upstream).increment();
+                                return Mono.delay(getBackoff(attempt));
+                            }));
+        });
+    }
+
+    private <T> Mono<T> hedged(String upstream,
+                               Mono<T> call,
+                               Timer timer) {
+        if (!hedgingEnabled) {
+            return call;
+        }
+
+        return Mono.defer(() -> {
+            var delay = getHedgeDelay(timer);
+            if (delay == null) {
+                return call;
+            }
+
+            // calls which may still answer, the result fails once none may
+            var pending = new AtomicInteger(1);
+            var error = new AtomicReference<Throwable>();
+            var failed = MonoProcessor.<T>create();
+            Function<Throwable, Mono<T>> onError = e -> {
+                // a half-open circuit lets only the first call through, the rejected hedge must not fail it
+                if (!(e instanceof CircuitBreaker.OpenException)) {
+                    error.compareAndSet(null, e);
+                }
+                if (pending.decrementAndGet() == 0) {
+                    failed.onError(error.get() == null ? e : error.get());
+                }
+                return Mono.never();
+            };
+
+            Mono<T> hedge = Mono.delay(delay).flatMap(it -> {
+                if (!retryBudget.tryWithdraw()) {
+                    return Mono.never();
+                }
+                pending.incrementAndGet();
+                meterRegistry.counter(HEDGES_METRIC, UPSTREAM_TAG, upstream).increment();
+                return call.onErrorResume(onError);
+            });
+            return Mono.first(call.onErrorResume(onError), hedge, failed);
+        });
+    }
+
+    /**
+     * @return recent p95 latency of the upstream, {@code null} if there are not enough recent calls
+     */
+    private Duration getHedgeDelay(Timer timer) {
+        if (timer.count() < MIN_CALLS_FOR_HEDGING) {
+            return null;
+        }
+
+        for (var percentile : timer.takeSnapshot().percentileValues()) {
+            double p95Ms = percentile.value(TimeUnit.MILLISECONDS);
+            if (percentile.percentile() == 0.95 && p95Ms > 0) {
+                return Duration.ofMillis(Math.max(minHedgeDelayMs, (long) p95Ms));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half of the delay is fixed and half is random,
+     * so retries of calls which failed together spread out.
+     */
+    private Duration getBackoff(int attempt) {
+        long backoffMs = Math.min(maxBackoffMs, firstBackoffMs << Math.min(attempt - 1, 30));
+        long halfMs = backoffMs / 2;
+
+        return Duration.ofMillis(halfMs + ThreadLocalRandom.current().nextLong(backoffMs - halfMs + 1));
+    }
+
+    private Timer getLatencyTimer(String upstream) {
+        return latencyTimers.computeIfAbsent(upstream, it -> Timer.builder(LATENCY_METRIC)
+                .tag(UPSTREAM_TAG, it)
+                .publishPercentiles(0.95)
+                .register(meterRegistry));
+    }
+
+    public CircuitBreaker.State getCircuitState(String upstream) {
+        return getCircuitBreaker(upstream).getState();
+    }
+
+    /**
+     * @return {@code false} if a call to the upstream would be rejected by its circuit now
+     */
+    public boolean isCallPermitted(String upstream) {
+        return !getCircuitBreaker(upstream).isRejecting();
+    }
+
+    private CircuitBreaker getCircuitBreaker(String upstream) {
+        return circuitBreakers.computeIfAbsent(upstream, it -> {
+            var circuitBreaker = new CircuitBreaker(circuitWindowSize, circuitMinCalls, circuitFailureRate,
+                    Duration.ofMillis(circuitOpenMs));
+            Gauge.builder(CIRCUIT_STATE_METRIC, circuitBreaker, cb -> cb.getState().ordinal())
+                    .description("Circuit state: 0 closed, 1 open, 2 half-open")
+                    .tag(UPSTREAM_TAG, it)
+                    .register(meterRegistry);
+            return circuitBreaker;
+        });
+    }
+
+    /**
+     * Client errors would fail again and the upstream answered them, so they do not count as upstream failures.
+     * An open circuit is not retried, the backoff is much shorter than the open duration.
+     */
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof CircuitBreaker.OpenException) {
+            return false;
+        }
+
+        return !(error instanceof WebClientResponseException
+                && ((WebClientResponseException) error).getStatusCode().is4xxClientError());
+    }
+}
@@ -0,0 +1,100 @@
+package test.maksim.flights.utils;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limit which follows the measured latency (AIMD): the limit grows by one each time a full limit
+ * of calls completes within the latency threshold while at least half of the limit is in use,
+ * and shrinks by {@link #BACKOFF_RATIO} on a call slower than the threshold, at most once per limit of completed calls.
+ * So calls which slow down together, as concurrent calls of one latency spike do, shrink the limit once.
+ * Only completed calls are latency samples, failed and cancelled ones release their permit without changing the limit.
+ * Calls over the limit are rejected instead of queued, so the latency of accepted calls stays bounded at saturation.
+ */
+public class AdaptiveLimiter {
+
+    static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private double limit;
+    private int inFlight;
+    private long rejected;
+    private long samples;
+    private long backoffWindowEnd;
+
+    public AdaptiveLimiter(int initialLimit,
+                           int minLimit,
+                           int maxLimit,
+                           Duration latencyThreshold) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must be 0 < min <= initial <= max: "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return {@code true} if the call may start, it must be followed by {@link #release(long)}
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected++;
+            return false;
+        }
+
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases a call which completed, its latency adapts the limit.
+     */
+    public synchronized void release(long latencyNanos) {
+        samples++;
+        if (latencyNanos > latencyThresholdNanos) {
+            if (samples > backoffWindowEnd) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                backoffWindowEnd = samples + (int) limit;
+            }
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        inFlight--;
+    }
+
+    /**
+     * Releases a call which ran out of its own deadline. Its latency is the deadline the caller chose,
+     * so it is only a sample if the call was slower than the threshold, a shorter deadline tells nothing.
+     */
+    public synchronized void releaseTimedOut(long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            release(latencyNanos);
+        } else {
+            releaseIgnored();
+        }
+    }
+
+    /**
+     * Releases a call which failed or was cancelled, it is not a latency sample.
+     */
+    public synchronized void releaseIgnored() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+}
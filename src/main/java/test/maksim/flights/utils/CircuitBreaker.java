@@ -0,0 +1,173 @@
+package test.maksim.flights.utils;
+
+import java.time.Duration;
+
+/**
+ * Stops calls to a failing upstream. Outcomes of the last {@code windowSize} calls are kept and the circuit opens
+ * once at least {@code minCalls} of them are recorded and the failure rate reaches the threshold.
+ * An open circuit rejects calls for {@code openDuration}, then lets a single trial call through:
+ * its success closes the circuit, its failure opens it again.
+ * Outcomes are reported to the {@link Permit} of the call, so late outcomes of other calls do not decide the trial.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] failures;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private State state = State.CLOSED;
+    private int calls;
+    private int failed;
+    private int next;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize,
+                          int minCalls,
+                          double failureRateThreshold,
+                          Duration openDuration) {
+        if (minCalls <= 0 || minCalls > windowSize) {
+            throw new IllegalArgumentException("Min calls must be in 1.." + windowSize + ": " + minCalls);
+        }
+
+        this.failures = new boolean[windowSize];
+        this.minCalls = minCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return permit of the call, the outcome of the call must be reported to it, {@code null} if the call is rejected
+     */
+    public synchronized Permit tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return new Permit(false);
+            case OPEN:
+                if (System.nanoTime() - openedAt < openDurationNanos) {
+                    return null;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return new Permit(true);
+            default:
+                if (trialInFlight) {
+                    return null;
+                }
+                trialInFlight = true;
+                return new Permit(true);
+        }
+    }
+
+    /**
+     * @return {@code true} if a call would be rejected now
+     */
+    public synchronized boolean isRejecting() {
+        switch (state) {
+            case CLOSED:
+                return false;
+            case OPEN:
+                return System.nanoTime() - openedAt < openDurationNanos;
+            default:
+                return trialInFlight;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Only the trial call decides the state of a half-open circuit, calls sent before it opened are left out.
+     */
+    private synchronized void onSuccess(boolean trial) {
+        if (state == State.HALF_OPEN && trial) {
+            close();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    private synchronized void onFailure(boolean trial) {
+        if (state == State.HALF_OPEN && trial) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minCalls && failed >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    private synchronized void onCancel(boolean trial) {
+        if (state == State.HALF_OPEN && trial) {
+            trialInFlight = false;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (calls == failures.length) {
+            failed -= failures[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failures[next] = failure;
+        failed += failure ? 1 : 0;
+        next = (next + 1) % failures.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        trialInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        calls = 0;
+        failed = 0;
+        next = 0;
+    }
+
+    /**
+     * Admission of a single call, tells whether the call is the trial of a half-open circuit.
+     */
+    public class Permit {
+
+        private final boolean trial;
+
+        private Permit(boolean trial) {
+            this.trial = trial;
+        }
+
+        public void onSuccess() {
+            CircuitBreaker.this.onSuccess(trial);
+        }
+
+        public void onFailure() {
+            CircuitBreaker.this.onFailure(trial);
+        }
+
+        /**
+         * The call ended without an outcome, e.g. it was cancelled, so another trial call may be sent.
+         */
+        public void onCancel() {
+            CircuitBreaker.this.onCancel(trial);
+        }
+    }
+
+    /**
+     * Call rejected because the circuit of the upstream is open.
+     */
+    public static class OpenException extends RuntimeException {
+
+        public OpenException(String upstream) {
+            super("Circuit of " + upstream + " is open");
+        }
+    }
+}
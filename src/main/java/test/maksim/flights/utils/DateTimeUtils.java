@@ -3,13 +3,36 @@ package test.maksim.flights.utils;
 import lombok.experimental.UtilityClass;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Objects;
 
 @UtilityClass
 public class DateTimeUtils {
 
+    private static final int SECONDS_PER_MINUTE = 60;
+
     public boolean isBeforeOrEquals(LocalDateTime time1,
                                     LocalDateTime time2) {
         return time1.isBefore(time2) || Objects.equals(time1, time2);
     }
+
+    /**
+     * @return minutes since 1970-01-01T00:00, seconds are truncated
+     */
+    public int toEpochMinute(LocalDateTime time) {
+        return Math.toIntExact(Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_MINUTE));
+    }
+
+    /**
+     * @return the first epoch minute which is not before the time
+     */
+    public int toEpochMinuteRoundedUp(LocalDateTime time) {
+        int minute = toEpochMinute(time);
+
+        return time.getSecond() == 0 && time.getNano() == 0 ? minute : minute + 1;
+    }
+
+    public LocalDateTime fromEpochMinute(int minute) {
+        return LocalDateTime.ofEpochSecond((long) minute * SECONDS_PER_MINUTE, 0, ZoneOffset.UTC);
+    }
 }
@@ -0,0 +1,45 @@
+package test.maksim.flights.utils;
+
+import java.time.Duration;
+
+/**
+ * Point in time by which a search has to complete, measured with {@link System#nanoTime()}.
+ */
+public class Deadline {
+
+    public static final Deadline NONE = new Deadline(0, false);
+
+    private final long nanoTime;
+    private final boolean limited;
+
+    private Deadline(long nanoTime,
+                     boolean limited) {
+        this.nanoTime = nanoTime;
+        this.limited = limited;
+    }
+
+    /**
+     * @return deadline the timeout from now, or {@link #NONE} if the timeout is {@code null}
+     */
+    public static Deadline after(Duration timeout) {
+        return timeout == null ? NONE : new Deadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    public boolean isLimited() {
+        return limited;
+    }
+
+    /**
+     * @return time left until the deadline, zero once it passed, {@link Long#MAX_VALUE} if there is no deadline
+     */
+    public long getRemainingNanos() {
+        return limited ? Math.max(0, nanoTime - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return time left until the deadline, {@code null} if there is no deadline
+     */
+    public Duration getRemaining() {
+        return limited ? Duration.ofNanos(getRemainingNanos()) : null;
+    }
+}
@@ -0,0 +1,43 @@
+package test.maksim.flights.utils;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+
+import java.time.Duration;
+
+/**
+ * Expires cache entries a fixed time after they were written, as {@code expireAfterWrite} does.
+ * Being a variable expiration, an entry can still be put with a shorter time by {@link Policy.VarExpiration#put},
+ * e.g. to keep the age an entry had before a restart.
+ */
+public class FixedExpiry<K, V> implements Expiry<K, V> {
+
+    private final long lifetimeNanos;
+
+    public FixedExpiry(Duration lifetime) {
+        this.lifetimeNanos = lifetime.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(K key,
+                                  V value,
+                                  long currentTime) {
+        return lifetimeNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(K key,
+                                  V value,
+                                  long currentTime,
+                                  long currentDuration) {
+        return lifetimeNanos;
+    }
+
+    @Override
+    public long expireAfterRead(K key,
+                                V value,
+                                long currentTime,
+                                long currentDuration) {
+        return currentDuration;
+    }
+}
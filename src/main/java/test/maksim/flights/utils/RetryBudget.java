@@ -0,0 +1,40 @@
+package test.maksim.flights.utils;
+
+/**
+ * Token bucket shared by the retries of the calls depositing to it: every call deposits {@code ratio} of a token
+ * and every retry withdraws a whole one, so retries add at most {@code ratio} of the calls to the load
+ * once the initial {@code maxTokens} are spent, however many calls fail.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    public RetryBudget(double ratio,
+                       int maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * @return {@code true} if a retry may be sent
+     */
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+
+        tokens--;
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
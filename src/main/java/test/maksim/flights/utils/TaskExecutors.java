@@ -0,0 +1,115 @@
+package test.maksim.flights.utils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.experimental.UtilityClass;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import test.maksim.flights.constants.ExecutionMode;
+import test.maksim.flights.constants.RejectionPolicy;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.ToDoubleFunction;
+
+@UtilityClass
+public class TaskExecutors {
+
+    /**
+     * @param corePoolSize    pool size in {@link ExecutionMode#PLATFORM} mode
+     * @param maxPoolSize     max pool size in {@link ExecutionMode#PLATFORM} mode, threads above the core size
+     *                        are only started once the queue is full
+     * @param maxConcurrency  max running tasks in {@link ExecutionMode#VIRTUAL} mode
+     * @param queueCapacity   max tasks waiting for a thread or a permit
+     * @param rejectionPolicy what happens to tasks once the queue is full
+     */
+    public AsyncListenableTaskExecutor create(ExecutionMode mode,
+                                              String threadNamePrefix,
+                                              int corePoolSize,
+                                              int maxPoolSize,
+                                              int maxConcurrency,
+                                              int queueCapacity,
+                                              RejectionPolicy rejectionPolicy) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            return new ConcurrentTaskExecutor(new ThrottledExecutor(newVirtualThreadPerTaskExecutor(), maxConcurrency,
+                    queueCapacity, rejectionPolicy));
+        }
+
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(rejectionPolicy == RejectionPolicy.CALLER_RUNS
+                ? new ThreadPoolExecutor.CallerRunsPolicy()
+                : new ThreadPoolExecutor.AbortPolicy());
+
+        return executor;
+    }
+
+    /**
+     * Registers gauges of running and queued tasks of an executor made by {@link #create}, tagged with its name.
+     * Gauges of a thread pool read zeros until the pool is initialized.
+     */
+    public void monitor(Executor executor,
+                        String name,
+                        MeterRegistry meterRegistry) {
+        var tags = Tags.of("name", name);
+        if (executor instanceof ThreadPoolTaskExecutor) {
+            var pool = (ThreadPoolTaskExecutor) executor;
+            registerGauge("executor.active", "Number of threads running tasks", pool, ThreadPoolTaskExecutor::getActiveCount, tags, meterRegistry);
+            registerGauge("executor.queued", "Number of tasks waiting in the queue", pool, TaskExecutors::getQueueSize, tags, meterRegistry);
+            registerGauge("executor.pool.size", "Number of threads in the pool", pool, ThreadPoolTaskExecutor::getPoolSize, tags, meterRegistry);
+        } else if (executor instanceof ConcurrentTaskExecutor
+                && ((ConcurrentTaskExecutor) executor).getConcurrentExecutor() instanceof ThrottledExecutor) {
+            var throttled = (ThrottledExecutor) ((ConcurrentTaskExecutor) executor).getConcurrentExecutor();
+            registerGauge("executor.active", "Number of threads running tasks", throttled, ThrottledExecutor::getActiveCount, tags, meterRegistry);
+            registerGauge("executor.queued", "Number of tasks waiting for a permit", throttled, ThrottledExecutor::getQueuedCount, tags, meterRegistry);
+        }
+    }
+
+    public boolean isVirtualThreadsSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private <T> void registerGauge(String name,
+                                   String description,
+                                   T executor,
+                                   ToDoubleFunction<T> value,
+                                   Tags tags,
+                                   MeterRegistry meterRegistry) {
+        Gauge.builder(name, executor, value)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    private int getQueueSize(ThreadPoolTaskExecutor pool) {
+        try {
+            return pool.getThreadPoolExecutor().getQueue().size();
+        } catch (IllegalStateException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The service is built for Java 11, so virtual threads are looked up on the running JVM.
+     */
+    private Executor newVirtualThreadPerTaskExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads execution mode requires Java 21 or later", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual threads executor", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package test.maksim.flights.utils;
+
+import test.maksim.flights.constants.RejectionPolicy;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs at most {@code maxConcurrency} tasks of the delegate at the same time,
+ * tasks over the limit wait for a permit on their own thread.
+ * At most {@code queueCapacity} tasks wait, further tasks are handled by the rejection policy.
+ */
+public class ThrottledExecutor implements Executor {
+
+    private final Executor delegate;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final Semaphore permits;
+    private final Semaphore slots;
+
+    public ThrottledExecutor(Executor delegate,
+                             int maxConcurrency) {
+        this(delegate, maxConcurrency, Integer.MAX_VALUE, RejectionPolicy.ABORT);
+    }
+
+    public ThrottledExecutor(Executor delegate,
+                             int maxConcurrency,
+                             int queueCapacity,
+                             RejectionPolicy rejectionPolicy) {
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+        this.permits = new Semaphore(maxConcurrency);
+        this.slots = new Semaphore((int) Math.min(Integer.MAX_VALUE, (long) maxConcurrency + queueCapacity));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!slots.tryAcquire()) {
+            if (rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+                task.run();
+                return;
+            }
+            throw new RejectedExecutionException("Executor is saturated, " + maxConcurrency + " tasks are running and "
+                    + queueCapacity + " are waiting");
+        }
+
+        try {
+            delegate.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * @return estimated number of tasks waiting for a permit
+     */
+    public int getQueuedCount() {
+        return permits.getQueueLength();
+    }
+}
@@ -0,0 +1,108 @@
+package test.maksim.flights.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@code limit} best of the offered elements.
+ * Elements are appended to a list until the limit is reached, then kept in a heap with the worst one on top,
+ * so an unreached limit costs no more than collecting all elements and sorting them once.
+ * Equal elements keep the order they were offered in, so the result is the same as a stable sort
+ * of all offered elements cut to the limit. Not thread-safe.
+ */
+public class TopN<T> {
+
+    private final int limit;
+    private final Comparator<T> comparator;
+    private final List<T> values = new ArrayList<>();
+    private PriorityQueue<Entry<T>> heap;
+    private long sequence;
+
+    public TopN(int limit,
+                Comparator<T> comparator) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+
+        this.limit = limit;
+        this.comparator = comparator;
+    }
+
+    /**
+     * @return {@code true} if the element is one of the best so far
+     */
+    public boolean offer(T value) {
+        if (heap == null) {
+            values.add(value);
+            if (values.size() == limit) {
+                heapify();
+            }
+            return true;
+        }
+
+        if (comparator.compare(value, heap.peek().value) >= 0) {
+            return false;
+        }
+        heap.poll();
+        heap.add(new Entry<>(value, sequence++));
+        return true;
+    }
+
+    public boolean isFull() {
+        return heap != null;
+    }
+
+    /**
+     * @return the worst of the kept elements once this is full, an element must be better than it to be kept
+     */
+    public T getWorst() {
+        return heap == null ? null : heap.peek().value;
+    }
+
+    public int size() {
+        return heap == null ? values.size() : heap.size();
+    }
+
+    /**
+     * @return kept elements from the best to the worst
+     */
+    public List<T> toList() {
+        if (heap == null) {
+            List<T> result = new ArrayList<>(values);
+            result.sort(comparator);
+            return result;
+        }
+
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort(heap.comparator().reversed());
+
+        return entries.stream()
+                .map(it -> it.value)
+                .collect(Collectors.toList());
+    }
+
+    private void heapify() {
+        Comparator<Entry<T>> order = Comparator.<Entry<T>, T>comparing(it -> it.value, comparator)
+                .thenComparingLong(it -> it.sequence);
+        heap = new PriorityQueue<>(limit, order.reversed());
+        for (var value : values) {
+            heap.add(new Entry<>(value, sequence++));
+        }
+        values.clear();
+    }
+
+    private static class Entry<T> {
+
+        private final T value;
+        private final long sequence;
+
+        Entry(T value,
+              long sequence) {
+            this.value = value;
+            this.sequence = sequence;
+        }
+    }
+}
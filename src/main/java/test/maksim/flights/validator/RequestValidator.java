@@ -1,16 +1,23 @@
 package test.maksim.flights.validator;
 
+import lombok.RequiredArgsConstructor;
+import test.maksim.flights.Config;
 import test.maksim.flights.domain.FlightsRequest;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 
 @Component
+@RequiredArgsConstructor
 public class RequestValidator {
 
+    private final Config config;
+
     public void validate(FlightsRequest request) {
         validateMaxStops(request);
         validateDates(request);
+        validateLimit(request);
+        validateTimeout(request);
 
         // TODO add more rules
     }
@@ -19,12 +26,35 @@ public class RequestValidator {
         if (request.getMaxStops() < 0) {
             throw new IllegalArgumentException("Max stops cannot be negative");
         }
-        if (request.getMaxStops() > 1) {
-            throw new IllegalArgumentException("Max stops > 1 is not supported yet");
+        if (request.getMaxStops() > config.getMaxStopsLimit()) {
+            throw new IllegalArgumentException("Max stops > " + config.getMaxStopsLimit() + " is not supported");
+        }
+    }
+
+    private void validateLimit(FlightsRequest request) {
+        if (request.isLimited() && request.getLimit() <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+    }
+
+    private void validateTimeout(FlightsRequest request) {
+        if (request.getTimeout() == null) {
+            return;
+        }
+
+        if (request.getTimeout().isZero() || request.getTimeout().isNegative()) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        if (request.getTimeout().toMillis() > config.getMaxSearchTimeoutMs()) {
+            throw new IllegalArgumentException("Timeout > " + config.getMaxSearchTimeoutMs() + " ms is not supported");
         }
     }
 
     private void validateDates(FlightsRequest request) {
+        if (request.getDepartureDateTime() == null || request.getArrivalDateTime() == null) {
+            throw new IllegalArgumentException("Departure and arrival times are required");
+        }
+
         if (request.getDepartureDateTime().isAfter(request.getArrivalDateTime())) {
             throw new IllegalArgumentException("Departure time must not be later than arrival time");
         }
@@ -33,6 +63,10 @@ public class RequestValidator {
             throw new IllegalArgumentException("Departure and arrival times cannot be equal");
         }
 
+        if (request.getDepartureDateTime().plusDays(config.getMaxSearchWindowDays()).isBefore(request.getArrivalDateTime())) {
+            throw new IllegalArgumentException("Search window > " + config.getMaxSearchWindowDays() + " days is not supported");
+        }
+
         LocalDateTime now = LocalDateTime.now();
         if (request.getDepartureDateTime().isBefore(now)) {
             throw new IllegalArgumentException("Departure time must be later than now: " + now);
@@ -0,0 +1,81 @@
+package test.maksim.flights;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Upstream services stub for {@link WebClient}, responds with JSON bodies registered per url.
+ */
+public class StubExchangeFunction implements ExchangeFunction {
+
+    // times are written as "HH:mm" strings like the upstream services do
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final Map<String, Mono<ClientResponse>> responses = new ConcurrentHashMap<>();
+    private final List<String> requestedUrls = new CopyOnWriteArrayList<>();
+
+    public WebClient createWebClient() {
+        return WebClient.builder()
+                .exchangeFunction(this)
+                .build();
+    }
+
+    public void respond(String url,
+                        Object body) {
+        responses.put(url, Mono.fromSupplier(() -> createResponse(HttpStatus.OK, body)));
+    }
+
+    public void respond(String url,
+                        Object body,
+                        Duration delay) {
+        responses.put(url, Mono.fromSupplier(() -> createResponse(HttpStatus.OK, body)).delayElement(delay));
+    }
+
+    public void fail(String url) {
+        responses.put(url, Mono.fromSupplier(() -> createResponse(HttpStatus.INTERNAL_SERVER_ERROR, "")));
+    }
+
+    public List<String> getRequestedUrls() {
+        return requestedUrls;
+    }
+
+    @Override
+    public Mono<ClientResponse> exchange(ClientRequest request) {
+        var url = request.url().toString();
+
+        // every subscription is a request, like with a real connector
+        return Mono.defer(() -> {
+            requestedUrls.add(url);
+            return responses.getOrDefault(url, Mono.fromSupplier(() -> createResponse(HttpStatus.NOT_FOUND, "")));
+        });
+    }
+
+    private ClientResponse createResponse(HttpStatus status,
+                                          Object body) {
+        try {
+            return ClientResponse.create(status)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(body instanceof String ? (String) body : objectMapper.writeValueAsString(body))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package test.maksim.flights;
 
+import test.maksim.flights.domain.FlightSchedule;
 import test.maksim.flights.domain.FlightsRequest;
 import test.maksim.flights.domain.Route;
+import test.maksim.flights.domain.Timetable;
 import lombok.experimental.UtilityClass;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @UtilityClass
 public class TestUtils {
 
@@ -25,4 +30,13 @@ public class TestUtils {
 
         return route;
     }
+
+    public List<FlightSchedule> toFlightSchedules(Timetable timetable) {
+        List<FlightSchedule> result = new ArrayList<>();
+        for (int i = 0; i < timetable.size(); i++) {
+            result.add(timetable.get(i));
+        }
+
+        return result;
+    }
 }
@@ -1,10 +1,13 @@
 package test.maksim.flights.builder;
 
 import test.maksim.flights.Config;
+import test.maksim.flights.constants.SortOrder;
+import test.maksim.flights.domain.InterconnectingRoute;
 import test.maksim.flights.rest.dto.Flight;
 import test.maksim.flights.domain.FlightSchedule;
 import test.maksim.flights.domain.FlightsRequest;
 import test.maksim.flights.domain.Route;
+import test.maksim.flights.domain.Timetable;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -13,9 +16,10 @@ import org.mockito.junit.MockitoJUnitRunner;
 import test.maksim.flights.TestUtils;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
@@ -34,106 +38,179 @@ public class FlightsBuilderTest {
     @Mock
     private Config config;
 
-    private final Route route = TestUtils.createRoute("a", "b");
+    private final Route route1 = TestUtils.createRoute("a", "b");
+    private final Route route2 = TestUtils.createRoute("b", "c");
+    private final Route route3 = TestUtils.createRoute("c", "d");
 
     @Test
-    public void createFlights_1Of3flightsOutOfDate_shouldCreate2Flights() {
-        var arrivalTime1 = "2019-07-01T09:00";
-        var arrivalTime2 = "2019-07-01T10:00";
-        var arrivalTime3 = "2019-07-01T08:00";
+    public void build_direct1Of3flightsOutOfDate_shouldCreate2Flights() {
+        var schedule1 = createFlightSchedule(DEFAULT_DEPARTURE_TIME, "2019-07-01T09:00");
+        var schedule2 = createFlightSchedule(DEFAULT_DEPARTURE_TIME, "2019-07-01T10:00");
+        var schedule3 = createFlightSchedule(DEFAULT_DEPARTURE_TIME, "2019-07-01T08:00");
 
-        List<Flight> flights = builder.createFlights(
+        List<Flight> flights = builder.build(
                 createFlightsRequest("2019-07-01T09:00"),
-                1,
-                route,
-                List.of(createFlightSchedule(arrivalTime1), createFlightSchedule(arrivalTime2), createFlightSchedule(arrivalTime3))
+                new InterconnectingRoute(List.of(route1)),
+                List.of(Timetable.of(List.of(schedule1, schedule2, schedule3)))
         );
 
         List<Flight> expectedFlights = List.of(
-                createSingleLegFlight(1, arrivalTime1),
-                createSingleLegFlight(1, arrivalTime3)
+                createFlight(createLeg(route1, schedule3)),
+                createFlight(createLeg(route1, schedule1))
         );
-        assertThat(flights, equalTo(expectedFlights));
+        assertThat(flights, containsInAnyOrder(expectedFlights.toArray()));
     }
 
     @Test
-    public void addAvailableLegs_4Flights1OutOfRange_shouldConnect3() {
+    public void build_oneStop4FirstLegs1OutOfRange_shouldConnectAllFeasible() {
         mockConfig();
-        var leg1ArrivalTime1 = "2019-07-01T09:00";
-        var leg1ArrivalTime2 = "2019-07-01T10:00";
-        var leg1ArrivalTime3 = "2019-07-01T11:00";
-        var leg1ArrivalTime4 = "2019-07-01T15:00";
-        var flight1 = createSingleLegFlight(1, leg1ArrivalTime1);
-        var flight2 = createSingleLegFlight(1, leg1ArrivalTime2);
-        var flight3 = createSingleLegFlight(1, leg1ArrivalTime3);
-        var flight4 = createSingleLegFlight(1, leg1ArrivalTime4);
-        var leg2ArrivalTime1 = "2019-07-01T11:00";
-        var leg2ArrivalTime2 = "2019-07-01T13:01";
-        List<FlightSchedule> flightSchedules = List.of(
-                createFlightScheduleDeparture(leg2ArrivalTime1),
-                createFlightScheduleDeparture(leg2ArrivalTime2)
+        var leg1Schedule1 = createFlightSchedule(DEFAULT_DEPARTURE_TIME, "2019-07-01T09:00");
+        var leg1Schedule2 = createFlightSchedule(DEFAULT_DEPARTURE_TIME, "2019-07-01T10:00");
+        var leg1Schedule3 = createFlightSchedule(DEFAULT_DEPARTURE_TIME, "2019-07-01T11:00");
+        var leg1Schedule4 = createFlightSchedule(DEFAULT_DEPARTURE_TIME, "2019-07-01T15:00");
+        var leg2Schedule1 = createFlightSchedule("2019-07-01T11:00", DEFAULT_ARRIVAL_TIME);
+        var leg2Schedule2 = createFlightSchedule("2019-07-01T13:01", DEFAULT_ARRIVAL_TIME);
+
+        List<Flight> flights = builder.build(
+                createFlightsRequest(DEFAULT_ARRIVAL_TIME),
+                new InterconnectingRoute(List.of(route1, route2)),
+                List.of(
+                        Timetable.of(List.of(leg1Schedule1, leg1Schedule2, leg1Schedule3, leg1Schedule4)),
+                        Timetable.of(List.of(leg2Schedule1, leg2Schedule2))
+                )
         );
 
-        builder.addAvailableLegs(
-                route,
-                flightSchedules,
-                List.of(flight1, flight2, flight3)
+        assertThat(flights, containsInAnyOrder(
+                createFlight(createLeg(route1, leg1Schedule1), createLeg(route2, leg2Schedule1)),
+                createFlight(createLeg(route1, leg1Schedule1), createLeg(route2, leg2Schedule2)),
+                createFlight(createLeg(route1, leg1Schedule2), createLeg(route2, leg2Schedule2)),
+                createFlight(createLeg(route1, leg1Schedule3), createLeg(route2, leg2Schedule2))
+        ));
+    }
+
+    @Test
+    public void build_twoStops_shouldRespectMinStopDurationOnEveryStop() {
+        mockConfig();
+        var leg1Schedule = createFlightSchedule("2019-07-01T06:00", "2019-07-01T08:00");
+        var leg2Schedule1 = createFlightSchedule("2019-07-01T09:00", "2019-07-01T10:00");
+        var leg2Schedule2 = createFlightSchedule("2019-07-01T10:00", "2019-07-01T11:00");
+        var leg3Schedule1 = createFlightSchedule("2019-07-01T12:30", "2019-07-01T14:00");
+        var leg3Schedule2 = createFlightSchedule("2019-07-01T13:00", "2019-07-01T14:30");
+
+        List<Flight> flights = builder.build(
+                createFlightsRequest(DEFAULT_ARRIVAL_TIME),
+                new InterconnectingRoute(List.of(route1, route2, route3)),
+                List.of(
+                        Timetable.of(List.of(leg1Schedule)),
+                        Timetable.of(List.of(leg2Schedule1, leg2Schedule2)),
+                        Timetable.of(List.of(leg3Schedule2, leg3Schedule1))
+                )
+        );
+
+        assertThat(flights, equalTo(List.of(
+                createFlight(createLeg(route1, leg1Schedule), createLeg(route2, leg2Schedule2), createLeg(route3, leg3Schedule2))
+        )));
+    }
+
+    @Test
+    public void build_noSchedulesForLastLeg_shouldReturnEmptyList() {
+        var leg1Schedule = createFlightSchedule(DEFAULT_DEPARTURE_TIME, "2019-07-01T09:00");
+
+        List<Flight> flights = builder.build(
+                createFlightsRequest(DEFAULT_ARRIVAL_TIME),
+                new InterconnectingRoute(List.of(route1, route2)),
+                List.of(Timetable.of(List.of(leg1Schedule)), Timetable.EMPTY)
+        );
+
+        assertThat(flights, hasSize(0));
+    }
+
+    @Test
+    public void build_limitedByArrival_shouldKeepEarliestArrivals() {
+        mockConfig();
+        var leg1Schedule1 = createFlightSchedule("2019-07-01T06:00", "2019-07-01T07:00");
+        var leg1Schedule2 = createFlightSchedule("2019-07-01T08:00", "2019-07-01T09:00");
+        var leg2Schedule1 = createFlightSchedule("2019-07-01T12:00", "2019-07-01T18:00");
+        var leg2Schedule2 = createFlightSchedule("2019-07-01T14:00", "2019-07-01T15:00");
+        var leg2Schedule3 = createFlightSchedule("2019-07-01T16:00", "2019-07-01T17:00");
+        var request = FlightsRequest.builder()
+                .departureDateTime(LocalDateTime.parse(DEFAULT_DEPARTURE_TIME))
+                .arrivalDateTime(LocalDateTime.parse(DEFAULT_ARRIVAL_TIME))
+                .limit(3)
+                .sort(SortOrder.ARRIVAL)
+                .build();
+
+        List<Flight> flights = builder.build(
+                request,
+                new InterconnectingRoute(List.of(route1, route2)),
+                List.of(
+                        Timetable.of(List.of(leg1Schedule1, leg1Schedule2)),
+                        Timetable.of(List.of(leg2Schedule1, leg2Schedule2, leg2Schedule3))
+                )
         );
 
-        verifyLeg2(flight1, leg2ArrivalTime1);
-        verifyLeg2(flight2, leg2ArrivalTime2);
-        verifyLeg2(flight3, leg2ArrivalTime2);
-        assertThat(flight4.getLegs(), hasSize(1));
+        assertThat(flights, contains(
+                createFlight(createLeg(route1, leg1Schedule1), createLeg(route2, leg2Schedule2)),
+                createFlight(createLeg(route1, leg1Schedule2), createLeg(route2, leg2Schedule2)),
+                createFlight(createLeg(route1, leg1Schedule1), createLeg(route2, leg2Schedule3))
+        ));
+    }
+
+    @Test
+    public void build_limitedByStops_shouldKeepFirstFound() {
+        var schedule1 = createFlightSchedule("2019-07-01T12:00", "2019-07-01T13:00");
+        var schedule2 = createFlightSchedule("2019-07-01T06:00", "2019-07-01T07:00");
+        var schedule3 = createFlightSchedule("2019-07-01T09:00", "2019-07-01T10:00");
+        var request = FlightsRequest.builder()
+                .departureDateTime(LocalDateTime.parse(DEFAULT_DEPARTURE_TIME))
+                .arrivalDateTime(LocalDateTime.parse(DEFAULT_ARRIVAL_TIME))
+                .limit(2)
+                .build();
+
+        List<Flight> flights = builder.build(
+                request,
+                new InterconnectingRoute(List.of(route1)),
+                List.of(Timetable.of(List.of(schedule1, schedule2, schedule3)))
+        );
+
+        assertThat(flights, contains(
+                createFlight(createLeg(route1, schedule2)),
+                createFlight(createLeg(route1, schedule3))
+        ));
     }
 
     // Util methods
 
     private FlightsRequest createFlightsRequest(String arrivalTime) {
         return FlightsRequest.builder()
+                .departureDateTime(LocalDateTime.parse(DEFAULT_DEPARTURE_TIME))
                 .arrivalDateTime(LocalDateTime.parse(arrivalTime))
                 .build();
     }
 
-    private FlightSchedule createFlightSchedule(String arrivalTime) {
-        return new FlightSchedule(
-                LocalDateTime.parse(DEFAULT_DEPARTURE_TIME),
-                LocalDateTime.parse(arrivalTime)
-        );
-    }
-
-    private FlightSchedule createFlightScheduleDeparture(String departureTime) {
+    private FlightSchedule createFlightSchedule(String departureTime,
+                                                String arrivalTime) {
         return new FlightSchedule(
                 LocalDateTime.parse(departureTime),
-                LocalDateTime.parse(DEFAULT_ARRIVAL_TIME)
+                LocalDateTime.parse(arrivalTime)
         );
     }
 
-    private Flight createSingleLegFlight(int stops,
-                                         String arrivalTime) {
-        List<Flight.Leg> legs = new ArrayList<>();
-        legs.add(createLeg(DEFAULT_DEPARTURE_TIME, arrivalTime));
-
-        return new Flight(stops, legs);
+    private Flight createFlight(Flight.Leg... legs) {
+        return new Flight(legs.length - 1, List.of(legs));
     }
 
-    private Flight.Leg createLeg(String departureTime,
-                                 String arrivalTime) {
+    private Flight.Leg createLeg(Route route,
+                                 FlightSchedule schedule) {
         return Flight.Leg.builder()
                     .departureAirport(route.getAirportFrom())
                     .arrivalAirport(route.getAirportTo())
-                    .departureDateTime(LocalDateTime.parse(departureTime))
-                    .arrivalDateTime(LocalDateTime.parse(arrivalTime))
+                    .departureDateTime(schedule.getDepartureTime())
+                    .arrivalDateTime(schedule.getArrivalTime())
                     .build();
     }
 
     private void mockConfig() {
         when(config.getMinStopDuration()).thenReturn(MIN_STOP_DURATION);
     }
-
-    private void verifyLeg2(Flight flight,
-                            String arrivalTime) {
-        var leg2 = createLeg(arrivalTime, DEFAULT_ARRIVAL_TIME);
-        assertThat(flight.getLegs(), hasSize(2));
-        assertThat(flight.getLegs().get(1), equalTo(leg2));
-    }
-}
\ No newline at end of file
+}
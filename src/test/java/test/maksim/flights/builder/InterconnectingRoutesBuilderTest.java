@@ -1,41 +1,54 @@
 package test.maksim.flights.builder;
 
-import test.maksim.flights.domain.FlightsRequest;
+import test.maksim.flights.Config;
+import test.maksim.flights.TestUtils;
+import test.maksim.flights.catalog.RouteGraph;
 import test.maksim.flights.domain.InterconnectingRoute;
 import test.maksim.flights.domain.Route;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.List;
-import java.util.Optional;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
-import static org.mockito.ArgumentMatchers.anyList;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.lenient;
 
 @RunWith(MockitoJUnitRunner.class)
 public class InterconnectingRoutesBuilderTest {
 
+    private static final int MAX_CANDIDATES = 100;
+
     @InjectMocks
     private InterconnectingRoutesBuilder builder;
 
     @Mock
-    private DirectRouteBuilder directRouteBuilder;
-    @Mock
-    private OneStopRouteBuilder oneStopRouteBuilder;
+    private Config config;
+
+    private final Route routeAB = TestUtils.createRoute("a", "b");
+    private final Route routeAC = TestUtils.createRoute("a", "c");
+    private final Route routeAE = TestUtils.createRoute("a", "e");
+    private final Route routeBA = TestUtils.createRoute("b", "a");
+    private final Route routeBC = TestUtils.createRoute("b", "c");
+    private final Route routeBE = TestUtils.createRoute("b", "e");
+    private final Route routeCD = TestUtils.createRoute("c", "d");
+    private final Route routeDE = TestUtils.createRoute("d", "e");
+    private final Route routeEB = TestUtils.createRoute("e", "b");
+
+    @Before
+    public void setUp() {
+        lenient().when(config.getMaxRouteCandidates()).thenReturn(MAX_CANDIDATES);
+    }
 
     @Test
     public void build_maxStops0_noDirectFlight_shouldReturnEmptyList() {
-        var  request = createRequest(0);
-        mockDirectRouteBuilder(null);
+        var request = TestUtils.createFlightsRequest(0, "a", "e");
 
-        List<InterconnectingRoute> result = builder.build(request, List.of(mock(Route.class)));
+        List<InterconnectingRoute> result = builder.build(request, RouteGraph.of(List.of(routeAB, routeBE)));
 
         assertThat(result, notNullValue());
         assertThat(result, hasSize(0));
@@ -43,41 +56,61 @@ public class InterconnectingRoutesBuilderTest {
 
     @Test
     public void build_maxStops0_hasDirectFlight_shouldReturnSingleRoute() {
-        var  request = createRequest(0);
-        var  interconnectingRoute = mock(InterconnectingRoute.class);
-        mockDirectRouteBuilder(interconnectingRoute);
+        var request = TestUtils.createFlightsRequest(0, "a", "e");
 
-        List<InterconnectingRoute> result = builder.build(request, List.of(mock(Route.class)));
+        List<InterconnectingRoute> result = builder.build(request, RouteGraph.of(List.of(routeAB, routeAE, routeBE)));
 
-        assertThat(result, equalTo(List.of(interconnectingRoute)));
+        assertThat(result, equalTo(List.of(route(routeAE))));
     }
 
     @Test
     public void build_maxStops1_hasDirectFlightAndInterconnectingRoute_shouldReturn2Routes() {
-        var  request = createRequest(1);
-        var interconnectingRoute1 = mock(InterconnectingRoute.class);
-        var interconnectingRoute2 = mock(InterconnectingRoute.class);
-        mockDirectRouteBuilder(interconnectingRoute1);
-        mockOneStopRouteBuilder(interconnectingRoute2);
+        var request = TestUtils.createFlightsRequest(1, "a", "e");
 
-        List<InterconnectingRoute> result = builder.build(request, List.of(mock(Route.class)));
+        List<InterconnectingRoute> result = builder.build(request, RouteGraph.of(List.of(routeAB, routeAE, routeBE, routeAC)));
 
-        assertThat(result, equalTo(List.of(interconnectingRoute1, interconnectingRoute2)));
+        assertThat(result, equalTo(List.of(route(routeAE), route(routeAB, routeBE))));
     }
 
-    // Util methods
+    @Test
+    public void build_maxStops3_shouldReturnRoutesOrderedByStops() {
+        var request = TestUtils.createFlightsRequest(3, "a", "e");
+        var graph = RouteGraph.of(List.of(routeAB, routeAC, routeAE, routeBA, routeBC, routeBE, routeCD, routeDE, routeEB));
+
+        List<InterconnectingRoute> result = builder.build(request, graph);
+
+        assertThat(result, equalTo(List.of(
+                route(routeAE),
+                route(routeAB, routeBE),
+                route(routeAC, routeCD, routeDE),
+                route(routeAB, routeBC, routeCD, routeDE)
+        )));
+    }
+
+    @Test
+    public void build_arrivalInTheMiddle_shouldNotPassThroughArrival() {
+        var request = TestUtils.createFlightsRequest(2, "a", "b");
+        var graph = RouteGraph.of(List.of(routeAE, routeEB, routeBE));
+
+        List<InterconnectingRoute> result = builder.build(request, graph);
 
-    private void mockDirectRouteBuilder(InterconnectingRoute route) {
-        when(directRouteBuilder.build(ArgumentMatchers.any(), anyList())).thenReturn(Optional.ofNullable(route));
+        assertThat(result, equalTo(List.of(route(routeAE, routeEB))));
     }
 
-    private void mockOneStopRouteBuilder(InterconnectingRoute route) {
-        when(oneStopRouteBuilder.build(ArgumentMatchers.any(), anyList())).thenReturn(List.of(route));
+    @Test
+    public void build_candidatesLimitReached_shouldKeepRoutesWithLessStops() {
+        lenient().when(config.getMaxRouteCandidates()).thenReturn(2);
+        var request = TestUtils.createFlightsRequest(3, "a", "e");
+        var graph = RouteGraph.of(List.of(routeAB, routeAC, routeAE, routeBC, routeBE, routeCD, routeDE));
+
+        List<InterconnectingRoute> result = builder.build(request, graph);
+
+        assertThat(result, equalTo(List.of(route(routeAE), route(routeAB, routeBE))));
     }
 
-    private FlightsRequest createRequest(int maxStops) {
-        return FlightsRequest.builder()
-                .maxStops(maxStops)
-                .build();
+    // Util methods
+
+    private InterconnectingRoute route(Route... routes) {
+        return new InterconnectingRoute(List.of(routes));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package test.maksim.flights.catalog;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import test.maksim.flights.Config;
+import test.maksim.flights.TestUtils;
+import test.maksim.flights.domain.Route;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.domain.TimetableKey;
+import test.maksim.flights.utils.FixedExpiry;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CatalogSnapshotStoreTest {
+
+    private static final TimetableKey KEY = new TimetableKey("a", "b", YearMonth.of(2149, 3));
+    private static final int CACHE_TTL_MINUTES = 60;
+    private static final int CACHE_STALE_MINUTES = 60;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    private AsyncCache<TimetableKey, Timetable> cache;
+    private CatalogSnapshotStore store;
+
+    @Before
+    public void setUp() {
+        cache = createCache(ticker);
+        store = createStore(cache, CACHE_TTL_MINUTES);
+    }
+
+    @Test
+    public void load_savedSnapshot_shouldRestoreRoutesAndTimetables() {
+        var route = TestUtils.createRoute("a", "b");
+        route.setOperator("RYANAIR");
+        var loadedAt = Instant.now().minusSeconds(30).truncatedTo(ChronoUnit.MILLIS);
+        cache.put(KEY, CompletableFuture.completedFuture(Timetable.builder(2)
+                .add(LocalDateTime.of(2149, 3, 1, 10, 0), LocalDateTime.of(2149, 3, 1, 12, 30), 1926)
+                .add(LocalDateTime.of(2149, 3, 2, 23, 0), LocalDateTime.of(2149, 3, 3, 1, 0), 7)
+                .build()));
+        store.save(createCatalog(List.of(route), loadedAt));
+        AsyncCache<TimetableKey, Timetable> restartedCache = createCache(new AtomicLong());
+
+        var result = createStore(restartedCache, CACHE_TTL_MINUTES).load().orElseThrow();
+
+        assertThat(result.getRoutes(), equalTo(List.of(route)));
+        assertThat(result.getLoadedAt(), equalTo(loadedAt));
+        assertThat(result.getGraph().getRoute("a", "b").isPresent(), is(true));
+        var timetable = restartedCache.synchronous().getIfPresent(KEY);
+        assertThat(timetable.size(), is(2));
+        assertThat(timetable.getArrivalTime(0), equalTo(LocalDateTime.of(2149, 3, 1, 12, 30)));
+        assertThat(timetable.getFlightNumber(1), is(7));
+    }
+
+    @Test
+    public void load_sameAirportInSeveralRoutes_shouldShareCode() {
+        store.save(createCatalog(List.of(TestUtils.createRoute("a", "b"), TestUtils.createRoute("b", "a")), Instant.now()));
+
+        var routes = store.load().orElseThrow().getRoutes();
+
+        assertThat(routes.get(1).getAirportFrom(), sameInstance(routes.get(0).getAirportTo()));
+        assertThat(routes.get(1).getAirportTo(), sameInstance(routes.get(0).getAirportFrom()));
+    }
+
+    @Test
+    public void load_timetableOlderThanCacheTtl_shouldRestoreRoutesOnly() {
+        cache.put(KEY, CompletableFuture.completedFuture(createTimetable()));
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(CACHE_TTL_MINUTES + 1));
+        store.save(createCatalog(List.of(TestUtils.createRoute("a", "b")), Instant.now()));
+        AsyncCache<TimetableKey, Timetable> restartedCache = createCache(new AtomicLong());
+
+        var result = createStore(restartedCache, CACHE_TTL_MINUTES).load().orElseThrow();
+
+        assertThat(result.getRoutes().size(), is(1));
+        assertThat(restartedCache.synchronous().getIfPresent(KEY), nullValue());
+    }
+
+    @Test
+    public void load_timetableYoungerThanCacheTtl_shouldKeepItsAge() {
+        cache.put(KEY, CompletableFuture.completedFuture(createTimetable()));
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(40));
+        store.save(createCatalog(List.of(TestUtils.createRoute("a", "b")), Instant.now()));
+        AsyncCache<TimetableKey, Timetable> restartedCache = createCache(new AtomicLong());
+
+        createStore(restartedCache, CACHE_TTL_MINUTES).load().orElseThrow();
+
+        long expiresAfter = restartedCache.synchronous().policy().expireVariably().orElseThrow()
+                .getExpiresAfter(KEY, TimeUnit.MINUTES).orElseThrow();
+        assertThat(expiresAfter, allOf(greaterThanOrEqualTo(79L), lessThanOrEqualTo(80L)));
+    }
+
+    @Test
+    public void load_corruptedFile_shouldReturnEmpty() throws Exception {
+        Files.write(folder.getRoot().toPath().resolve("catalog.snapshot"), new byte[]{1, 2, 3});
+
+        assertThat(store.load().isPresent(), is(false));
+    }
+
+    @Test
+    public void load_disabled_shouldReturnEmpty() {
+        var disabled = new CatalogSnapshotStore(cache, "", createConfig(60));
+        disabled.save(createCatalog(List.of(TestUtils.createRoute("a", "b")), Instant.now()));
+
+        assertThat(disabled.load().isPresent(), is(false));
+    }
+
+    // Util methods
+
+    private CatalogSnapshotStore createStore(AsyncCache<TimetableKey, Timetable> cache,
+                                             int timetablesMaxAgeMinutes) {
+        return new CatalogSnapshotStore(cache, folder.getRoot().toPath().resolve("catalog.snapshot").toString(),
+                createConfig(timetablesMaxAgeMinutes));
+    }
+
+    private Config createConfig(int schedulesCacheTtlMinutes) {
+        var config = mock(Config.class);
+        when(config.getSchedulesCacheTtlMinutes()).thenReturn(schedulesCacheTtlMinutes);
+        when(config.getSchedulesCacheStaleMinutes()).thenReturn(CACHE_STALE_MINUTES);
+
+        return config;
+    }
+
+    private AsyncCache<TimetableKey, Timetable> createCache(AtomicLong ticker) {
+        return Caffeine.newBuilder()
+                .ticker(ticker::get)
+                .expireAfter(new FixedExpiry<TimetableKey, Timetable>(Duration.ofMinutes(CACHE_TTL_MINUTES + CACHE_STALE_MINUTES)))
+                .buildAsync();
+    }
+
+    private Timetable createTimetable() {
+        return Timetable.builder(1)
+                .add(LocalDateTime.of(2149, 3, 1, 10, 0), LocalDateTime.of(2149, 3, 1, 12, 30), 1926)
+                .build();
+    }
+
+    private RouteCatalogSnapshot createCatalog(List<Route> routes,
+                                               Instant loadedAt) {
+        return new RouteCatalogSnapshot(routes, RouteGraph.of(routes), loadedAt);
+    }
+}
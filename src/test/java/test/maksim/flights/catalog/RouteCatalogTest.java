@@ -0,0 +1,207 @@
+package test.maksim.flights.catalog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import reactor.core.scheduler.Schedulers;
+import test.maksim.flights.TestUtils;
+import test.maksim.flights.domain.Route;
+import test.maksim.flights.service.RoutesRequestService;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RouteCatalogTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+
+    private RouteCatalog catalog;
+
+    @Mock
+    private RoutesRequestService routesRequestService;
+
+    @Mock
+    private CatalogSnapshotStore snapshotStore;
+
+    @Before
+    public void setUp() {
+        taskScheduler.initialize();
+        catalog = new RouteCatalog(routesRequestService, meterRegistry, snapshotStore, taskScheduler);
+    }
+
+    @After
+    public void tearDown() {
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    public void init_routesLoaded_shouldServeFromMemory() {
+        var routes = List.of(TestUtils.createRoute("a", "b"));
+        mockRoutesRequestService(routes);
+
+        catalog.init();
+        List<Route> result1 = catalog.getSnapshot().getRoutes();
+        List<Route> result2 = catalog.getSnapshot().getRoutes();
+
+        assertThat(result1, equalTo(routes));
+        assertThat(result2, equalTo(routes));
+        verify(routesRequestService, times(1)).request(any(), any());
+    }
+
+    @Test
+    public void init_snapshotPersisted_shouldServeSnapshotAndRefreshInBackground() {
+        var persisted = List.of(TestUtils.createRoute("a", "b"));
+        var routes = List.of(TestUtils.createRoute("a", "b"), TestUtils.createRoute("b", "c"));
+        when(snapshotStore.load()).thenReturn(Optional.of(
+                new RouteCatalogSnapshot(persisted, RouteGraph.of(persisted), Instant.now())));
+        var release = new CountDownLatch(1);
+        when(routesRequestService.request(any(), any())).thenAnswer(it -> {
+            release.await(5, TimeUnit.SECONDS);
+            return routes;
+        });
+
+        catalog.init();
+
+        assertThat(catalog.getSnapshot().getRoutes(), equalTo(persisted));
+        release.countDown();
+        verify(routesRequestService, timeout(5000)).request(any(), any());
+    }
+
+    @Test
+    public void persist_routesLoaded_shouldSaveServedSnapshot() {
+        var routes = List.of(TestUtils.createRoute("a", "b"));
+        mockRoutesRequestService(routes);
+        catalog.init();
+
+        catalog.persist();
+
+        verify(snapshotStore).save(argThat(it -> it.getRoutes().equals(routes)));
+    }
+
+    @Test
+    public void refresh_newRoutes_shouldSwapSnapshot() {
+        var routes1 = List.of(TestUtils.createRoute("a", "b"));
+        var routes2 = List.of(TestUtils.createRoute("a", "b"), TestUtils.createRoute("b", "c"));
+        mockRoutesRequestService(routes1);
+        catalog.init();
+        mockRoutesRequestService(routes2);
+
+        catalog.refresh();
+
+        assertThat(catalog.getSnapshot().getRoutes(), equalTo(routes2));
+    }
+
+    @Test
+    public void refresh_requestError_shouldKeepLastGoodSnapshot() {
+        var routes = List.of(TestUtils.createRoute("a", "b"));
+        mockRoutesRequestService(routes);
+        catalog.init();
+        doThrow(RuntimeException.class).when(routesRequestService).request(any(), any());
+
+        catalog.refresh();
+
+        assertThat(catalog.getSnapshot().getRoutes(), equalTo(routes));
+        assertThat(meterRegistry.counter("routes.catalog.refresh.failures").count(), equalTo(1.0));
+    }
+
+    @Test
+    public void refresh_emptyResponse_shouldKeepLastGoodSnapshot() {
+        var routes = List.of(TestUtils.createRoute("a", "b"));
+        mockRoutesRequestService(routes);
+        catalog.init();
+        mockRoutesRequestService(emptyList());
+
+        catalog.refresh();
+
+        assertThat(catalog.getSnapshot().getRoutes(), equalTo(routes));
+    }
+
+    @Test
+    public void sizeGauge_initialLoadFailed_shouldNotRequestRoutes() {
+        mockRoutesRequestService(emptyList());
+        catalog.init();
+
+        var size = meterRegistry.get("routes.catalog.size").gauge().value();
+
+        assertThat(size, equalTo(0.0));
+        verify(routesRequestService, times(1)).request(any(), any());
+    }
+
+    @Test
+    public void getSnapshot_initialLoadFailed_shouldLoadOnDemand() {
+        var routes = List.of(TestUtils.createRoute("a", "b"));
+        when(routesRequestService.request(any(), any())).thenReturn(emptyList(), routes);
+        catalog.init();
+
+        assertThat(catalog.getSnapshot().getRoutes(), hasSize(1));
+        verify(routesRequestService, times(2)).request(any(), any());
+    }
+
+    @Test
+    public void getSnapshot_concurrentInitialLoad_shouldRequestRoutesOnce() throws Exception {
+        var routes = List.of(TestUtils.createRoute("a", "b"));
+        var requestStarted = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(routesRequestService.request(any(), any())).thenAnswer(it -> {
+            requestStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return routes;
+        });
+
+        var result1 = CompletableFuture.supplyAsync(() -> catalog.getSnapshot().getRoutes());
+        requestStarted.await(5, TimeUnit.SECONDS);
+        var result2 = CompletableFuture.supplyAsync(() -> catalog.getSnapshot().getRoutes());
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(result1.get(5, TimeUnit.SECONDS), equalTo(routes));
+        assertThat(result2.get(5, TimeUnit.SECONDS), equalTo(routes));
+        verify(routesRequestService, times(1)).request(any(), any());
+    }
+
+    @Test
+    public void getSnapshotAsync_initialLoadInProgress_shouldEmitLoadedSnapshotWithoutBlocking() throws Exception {
+        var routes = List.of(TestUtils.createRoute("a", "b"));
+        var release = new CountDownLatch(1);
+        when(routesRequestService.request(any(), any())).thenAnswer(it -> {
+            release.await(5, TimeUnit.SECONDS);
+            return routes;
+        });
+
+        var result1 = catalog.getSnapshotAsync().subscribeOn(Schedulers.parallel()).toFuture();
+        var result2 = catalog.getSnapshotAsync().subscribeOn(Schedulers.parallel()).toFuture();
+        Thread.sleep(100);
+        assertThat(result1.isDone(), is(false));
+        release.countDown();
+
+        assertThat(result1.get(5, TimeUnit.SECONDS).getRoutes(), equalTo(routes));
+        assertThat(result2.get(5, TimeUnit.SECONDS).getRoutes(), equalTo(routes));
+        verify(routesRequestService, times(1)).request(any(), any());
+    }
+
+    // Util methods
+
+    private void mockRoutesRequestService(List<Route> routes) {
+        when(routesRequestService.request(any(), any())).thenReturn(routes);
+    }
+}
@@ -0,0 +1,124 @@
+package test.maksim.flights.catalog;
+
+import org.junit.Test;
+import test.maksim.flights.TestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RouteGraphTest {
+
+    private final RouteGraph graph = RouteGraph.of(List.of(
+            TestUtils.createRoute("a", "b"),
+            TestUtils.createRoute("a", "c"),
+            TestUtils.createRoute("b", "c"),
+            TestUtils.createRoute("c", "a")
+    ));
+
+    @Test
+    public void getOutbound_hasRoutes_shouldReturnRoutesFromAirport() {
+        assertThat(graph.getOutbound("a"), contains(
+                TestUtils.createRoute("a", "b"),
+                TestUtils.createRoute("a", "c")
+        ));
+    }
+
+    @Test
+    public void getInbound_hasRoutes_shouldReturnRoutesToAirport() {
+        assertThat(graph.getInbound("c"), contains(
+                TestUtils.createRoute("a", "c"),
+                TestUtils.createRoute("b", "c")
+        ));
+    }
+
+    @Test
+    public void getOutbound_unknownAirport_shouldReturnEmptyList() {
+        assertThat(graph.getOutbound("x"), hasSize(0));
+        assertThat(graph.getInbound("x"), hasSize(0));
+    }
+
+    @Test
+    public void getRoute_shouldFindRouteBetweenAirports() {
+        assertThat(graph.getRoute("b", "c"), equalTo(Optional.of(TestUtils.createRoute("b", "c"))));
+        assertThat(graph.getRoute("b", "a"), equalTo(Optional.empty()));
+    }
+
+    @Test
+    public void of_shouldNotModifyRoutes() {
+        var code = new String("a");
+        var route1 = TestUtils.createRoute(code, "b");
+        var route2 = TestUtils.createRoute("c", new String("a"));
+
+        var result = RouteGraph.of(List.of(route1, route2));
+
+        assertThat(route1.getAirportFrom(), sameInstance(code));
+        assertThat(route2.getAirportTo(), not(sameInstance(code)));
+        assertThat(result.getOutbound("a"), contains(route1));
+        assertThat(result.getInbound("a"), contains(route2));
+    }
+
+    @Test
+    public void getHopsTo_shouldReturnMinimalLegsWithinLimit() {
+        var chain = RouteGraph.of(List.of(
+                TestUtils.createRoute("a", "b"),
+                TestUtils.createRoute("b", "c"),
+                TestUtils.createRoute("a", "c"),
+                TestUtils.createRoute("x", "a")
+        ));
+
+        var airports = chain.getAirports();
+        int[] hops1 = chain.getHopsTo(airports.getId("c"), 1);
+        int[] hops2 = chain.getHopsTo(airports.getId("c"), 2);
+
+        assertThat(hops1[airports.getId("c")], is(0));
+        assertThat(hops1[airports.getId("b")], is(1));
+        assertThat(hops1[airports.getId("a")], is(1));
+        assertThat(hops1[airports.getId("x")], is(Integer.MAX_VALUE));
+        assertThat(hops2[airports.getId("x")], is(2));
+    }
+
+    @Test
+    public void getOneStop_shouldReturnHubsInOutboundRoutesOrder() {
+        var network = RouteGraph.of(List.of(
+                TestUtils.createRoute("a", "c"),
+                TestUtils.createRoute("a", "b"),
+                TestUtils.createRoute("a", "d"),
+                TestUtils.createRoute("b", "d"),
+                TestUtils.createRoute("c", "d"),
+                TestUtils.createRoute("c", "a"),
+                TestUtils.createRoute("d", "a")
+        ));
+        var airports = network.getAirports();
+
+        var hubs = network.getOneStop(airports.getId("a"), airports.getId("d"));
+
+        assertThat(hubs.size(), is(2));
+        assertThat(hubs.getHub(0), is(airports.getId("c")));
+        assertThat(hubs.getFirstLeg(0), equalTo(TestUtils.createRoute("a", "c")));
+        assertThat(hubs.getSecondLeg(0), equalTo(TestUtils.createRoute("c", "d")));
+        assertThat(hubs.getHub(1), is(airports.getId("b")));
+        assertThat(network.getOneStop(airports.getId("a"), airports.getId("a")).size(), is(0));
+        assertThat(network.getOneStop(airports.getId("a"), AirportRegistry.UNKNOWN).size(), is(0));
+    }
+
+    @Test
+    public void of_shouldAssignDenseIdsInCodeOrder() {
+        var airports = graph.getAirports();
+
+        assertThat(airports.size(), is(3));
+        assertThat(airports.getId("a"), is(0));
+        assertThat(airports.getCode(2), is("c"));
+        assertThat(airports.getId("x"), is(AirportRegistry.UNKNOWN));
+    }
+
+    @Test
+    public void getOutboundAirports_shouldReturnDestinationIdsInRoutesOrder() {
+        int a = graph.getAirports().getId("a");
+
+        assertThat(graph.getOutbound(a)[1], equalTo(TestUtils.createRoute("a", "c")));
+        assertThat(graph.getOutboundAirports(a)[1], is(graph.getAirports().getId("c")));
+    }
+}
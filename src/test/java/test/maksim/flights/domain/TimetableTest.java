@@ -0,0 +1,99 @@
+package test.maksim.flights.domain;
+
+import org.junit.Test;
+import test.maksim.flights.TestUtils;
+import test.maksim.flights.utils.DateTimeUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TimetableTest {
+
+    private static final LocalDateTime DAY_START = LocalDateTime.parse("2019-07-01T00:00");
+
+    @Test
+    public void build_flightsNotInDepartureOrder_shouldSortByDeparture() {
+        var timetable = Timetable.builder(3)
+                .add(DAY_START.plusHours(12), DAY_START.plusHours(14), 3)
+                .add(DAY_START.plusHours(6), DAY_START.plusHours(8), 1)
+                .add(DAY_START.plusHours(9), DAY_START.plusHours(10), 2)
+                .build();
+
+        assertThat(timetable.getFlightNumber(0), is(1));
+        assertThat(timetable.getFlightNumber(1), is(2));
+        assertThat(timetable.getFlightNumber(2), is(3));
+        assertThat(timetable.get(1), equalTo(createSchedule(9, 10)));
+    }
+
+    @Test
+    public void build_equalDepartures_shouldKeepOrderOfAddition() {
+        var timetable = Timetable.builder(4)
+                .add(DAY_START.plusHours(12), DAY_START.plusHours(14), 4)
+                .add(DAY_START.plusHours(9), DAY_START.plusHours(11), 2)
+                .add(DAY_START.plusHours(6), DAY_START.plusHours(8), 1)
+                .add(DAY_START.plusHours(9), DAY_START.plusHours(10), 3)
+                .build();
+
+        assertThat(timetable.getFlightNumber(0), is(1));
+        assertThat(timetable.getFlightNumber(1), is(2));
+        assertThat(timetable.getFlightNumber(2), is(3));
+        assertThat(timetable.getFlightNumber(3), is(4));
+        assertThat(timetable.get(2), equalTo(createSchedule(9, 10)));
+    }
+
+    @Test
+    public void indexOfFirstDepartureAfter_equalDepartures_shouldSkipAllEqual() {
+        var timetable = Timetable.of(List.of(createSchedule(6, 8), createSchedule(9, 10), createSchedule(9, 11)));
+
+        int result = timetable.indexOfFirstDepartureAfter(DateTimeUtils.toEpochMinute(DAY_START.plusHours(9)));
+
+        assertThat(result, is(3));
+    }
+
+    @Test
+    public void window_allFlightsOfMonthMatch_shouldReturnMonth() {
+        var month = Timetable.of(List.of(createSchedule(6, 8), createSchedule(9, 10)));
+
+        var result = Timetable.window(List.of(month), DAY_START, DAY_START.plusDays(1));
+
+        assertThat(result, sameInstance(month));
+    }
+
+    @Test
+    public void window_flightsOutOfWindow_shouldReturnFlightsDepartingAfterAndArrivingBefore() {
+        var month = Timetable.of(List.of(
+                createSchedule(6, 8),
+                createSchedule(9, 10),
+                createSchedule(12, 20),
+                createSchedule(13, 15),
+                createSchedule(17, 19)
+        ));
+
+        var result = Timetable.window(List.of(month), DAY_START.plusHours(6), DAY_START.plusHours(18));
+
+        assertThat(TestUtils.toFlightSchedules(result), equalTo(List.of(createSchedule(9, 10), createSchedule(13, 15))));
+    }
+
+    @Test
+    public void window_severalMonths_shouldMergeInDepartureOrder() {
+        var month1 = Timetable.of(List.of(createSchedule(6, 8), createSchedule(-2, -1)));
+        var month2 = Timetable.of(List.of(createSchedule(30, 32)));
+
+        var result = Timetable.window(List.of(month1, month2), DAY_START.minusDays(1), DAY_START.plusDays(2));
+
+        assertThat(TestUtils.toFlightSchedules(result),
+                equalTo(List.of(createSchedule(-2, -1), createSchedule(6, 8), createSchedule(30, 32))));
+    }
+
+    // Util methods
+
+    private FlightSchedule createSchedule(int departureHour,
+                                          int arrivalHour) {
+        return new FlightSchedule(DAY_START.plusHours(departureHour), DAY_START.plusHours(arrivalHour));
+    }
+}
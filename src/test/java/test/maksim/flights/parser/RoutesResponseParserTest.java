@@ -0,0 +1,82 @@
+package test.maksim.flights.parser;
+
+import org.junit.Test;
+import test.maksim.flights.TestUtils;
+import test.maksim.flights.constants.OperatorNames;
+import test.maksim.flights.domain.Route;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class RoutesResponseParserTest {
+
+    private final RoutesResponseParser parser = new RoutesResponseParser();
+
+    @Test
+    public void parse_routesOfOtherOperatorsAndConnecting_shouldKeepOnlyMatching() {
+        var body = "["
+                + "{\"airportFrom\":\"AAL\",\"airportTo\":\"AGP\",\"connectingAirport\":null,\"newRoute\":false,"
+                + "\"seasonalRoute\":false,\"operator\":\"RYANAIR\",\"group\":\"CITY\",\"similarArrivalAirportCodes\":[],"
+                + "\"tags\":[]},"
+                + "{\"airportFrom\":\"AAL\",\"airportTo\":\"BCN\",\"connectingAirport\":null,\"operator\":\"AIR_EUROPA\"},"
+                + "{\"airportFrom\":\"AAL\",\"airportTo\":\"DUB\",\"connectingAirport\":\"STN\",\"operator\":\"RYANAIR\"}"
+                + "]";
+
+        List<Route> routes = parse(body);
+
+        var expected = TestUtils.createRoute("AAL", "AGP");
+        expected.setOperator(OperatorNames.RYANAIR);
+        assertThat(routes, equalTo(List.of(expected)));
+    }
+
+    @Test
+    public void parse_sameAirportInSeveralRoutes_shouldShareCode() {
+        var body = "[{\"airportFrom\":\"AAL\",\"airportTo\":\"AGP\",\"operator\":\"RYANAIR\"},"
+                + "{\"operator\":\"RYANAIR\",\"airportTo\":\"AAL\",\"airportFrom\":\"AGP\"}]";
+
+        List<Route> routes = parse(body);
+
+        assertThat(routes.get(1).getAirportTo(), sameInstance(routes.get(0).getAirportFrom()));
+        assertThat(routes.get(1).getAirportFrom(), sameInstance(routes.get(0).getAirportTo()));
+    }
+
+    @Test
+    public void parse_bodySplitIntoChunks_shouldMatchWholeBody() {
+        var body = ("[{\"airportFrom\":\"AAL\",\"airportTo\":\"AGP\",\"connectingAirport\":null,"
+                + "\"operator\":\"RYANAIR\",\"similarArrivalAirportCodes\":[\"X\"],\"tags\":[{\"a\":[1]}]},"
+                + "{\"airportFrom\":\"AGP\",\"airportTo\":\"BCN\",\"operator\":\"RYANAIR\"}]")
+                .getBytes(StandardCharsets.UTF_8);
+        var expected = parser.parse(body, null, List.of(OperatorNames.RYANAIR));
+
+        for (int split = 1; split < body.length; split++) {
+            var parsing = parser.start(null, List.of(OperatorNames.RYANAIR));
+            parsing.feed(body, 0, split);
+            parsing.feed(body, split, body.length);
+
+            assertThat(parsing.finish(), equalTo(expected));
+        }
+        assertThat(expected, hasSize(2));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void parse_unclosedArray_shouldThrowException() {
+        parse("[{\"airportFrom\":\"AAL\",\"airportTo\":\"AGP\",\"operator\":\"RYANAIR\"}");
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void parse_notArray_shouldThrowException() {
+        parse("{\"airportFrom\":\"AAL\"}");
+    }
+
+    // Util methods
+
+    private List<Route> parse(String body) {
+        return parser.parse(body.getBytes(StandardCharsets.UTF_8), null, List.of(OperatorNames.RYANAIR));
+    }
+}
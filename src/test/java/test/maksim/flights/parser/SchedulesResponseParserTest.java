@@ -0,0 +1,81 @@
+package test.maksim.flights.parser;
+
+import org.junit.Test;
+import test.maksim.flights.TestUtils;
+import test.maksim.flights.domain.FlightSchedule;
+import test.maksim.flights.domain.Timetable;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SchedulesResponseParserTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2019, 7);
+
+    private final SchedulesResponseParser parser = new SchedulesResponseParser();
+
+    @Test
+    public void parse_daysBeforeFirstDay_shouldSkipThem() {
+        var body = "{\"month\":7,\"days\":["
+                + "{\"day\":1,\"flights\":[{\"number\":\"1\",\"departureTime\":\"10:00\",\"arrivalTime\":\"12:00\"}]},"
+                + "{\"day\":2,\"flights\":[{\"number\":\"2\",\"departureTime\":\"08:00\",\"arrivalTime\":\"09:30\"}]}"
+                + "]}";
+
+        Timetable result = parse(body, 2);
+
+        assertThat(TestUtils.toFlightSchedules(result), equalTo(List.of(createFlightSchedule(2, "08:00", 2, "09:30"))));
+        assertThat(result.getFlightNumber(0), is(2));
+    }
+
+    @Test
+    public void parse_arrivalTimeIsOnNextDay_shouldBuildProperDate() {
+        var body = "{\"days\":[{\"day\":31,\"flights\":[{\"departureTime\":\"21:10\",\"arrivalTime\":\"00:25\"}]}]}";
+
+        Timetable result = parse(body, 1);
+
+        assertThat(TestUtils.toFlightSchedules(result), equalTo(List.of(
+                new FlightSchedule(LocalDateTime.parse("2019-07-31T21:10"), LocalDateTime.parse("2019-08-01T00:25"))
+        )));
+    }
+
+    @Test
+    public void parse_dayAfterFlightsAndUnknownFields_shouldParseFlightsOfTheDay() {
+        var body = "{\"days\":[{\"flights\":[{\"carrierCode\":\"FR\",\"number\":1926,\"departureTime\":\"17:50\","
+                + "\"arrivalTime\":\"21:25\",\"extra\":{\"a\":[1,2]}}],\"day\":3}],\"extra\":[]}";
+
+        Timetable result = parse(body, 1);
+
+        assertThat(TestUtils.toFlightSchedules(result), equalTo(List.of(createFlightSchedule(3, "17:50", 3, "21:25"))));
+        assertThat(result.getFlightNumber(0), is(1926));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void parse_malformedTime_shouldThrowException() {
+        parse("{\"days\":[{\"day\":1,\"flights\":[{\"departureTime\":\"1:00\",\"arrivalTime\":\"02:00\"}]}]}", 1);
+    }
+
+    // Util methods
+
+    private Timetable parse(String body,
+                            int firstDay) {
+        return parser.parse(body.getBytes(StandardCharsets.UTF_8), MONTH, firstDay);
+    }
+
+    private FlightSchedule createFlightSchedule(int departureDay,
+                                                String departureTime,
+                                                int arrivalDay,
+                                                String arrivalTime) {
+        return new FlightSchedule(
+                MONTH.atDay(departureDay).atTime(LocalTime.parse(departureTime)),
+                MONTH.atDay(arrivalDay).atTime(LocalTime.parse(arrivalTime))
+        );
+    }
+}
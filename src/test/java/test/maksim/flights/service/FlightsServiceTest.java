@@ -4,29 +4,41 @@ import test.maksim.flights.Config;
 import test.maksim.flights.TestUtils;
 import test.maksim.flights.builder.FlightsBuilder;
 import test.maksim.flights.builder.InterconnectingRoutesBuilder;
+import test.maksim.flights.catalog.RouteCatalog;
+import test.maksim.flights.catalog.RouteCatalogSnapshot;
+import test.maksim.flights.catalog.RouteGraph;
+import test.maksim.flights.constants.MetricNames;
 import test.maksim.flights.rest.dto.Flight;
+import test.maksim.flights.rest.dto.FlightsResult;
+import test.maksim.flights.utils.AdaptiveLimiter;
 import test.maksim.flights.validator.RequestValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
-import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.core.task.AsyncTaskExecutor;
-import test.maksim.flights.constants.OperatorNames;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import test.maksim.flights.domain.*;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static java.util.Collections.emptyList;
-import static java.util.Collections.singleton;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -38,10 +50,13 @@ public class FlightsServiceTest {
     private static final String AIRPORT_B = "b";
     private static final String AIRPORT_C = "c";
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdaptiveLimiter searchLimiter = new AdaptiveLimiter(1, 1, 1, Duration.ofMinutes(1));
+
     private FlightsService service;
 
     @Mock
-    private RoutesRequestService routesRequestService;
+    private RouteCatalog routeCatalog;
     @Mock
     private SchedulesRequestService schedulesRequestService;
     @Mock
@@ -56,13 +71,15 @@ public class FlightsServiceTest {
     @Before
     public void setUp() {
         service = new FlightsService(
-                routesRequestService,
+                routeCatalog,
                 schedulesRequestService,
                 interconnectingRoutesBuilder,
                 requestValidator,
                 new FlightsBuilder(config),
+                schedulesExecutor,
                 config,
-                schedulesExecutor
+                meterRegistry,
+                searchLimiter
         );
     }
 
@@ -74,26 +91,93 @@ public class FlightsServiceTest {
             service.getFlights(createFlightsRequest());
             Assert.fail();
         } catch (Exception e) {
-            verifyRoutesRequestServiceCall(0);
+            verifyRouteCatalogCall(0);
             verifySchedulesRequestService(0);
         }
     }
 
     @Test
-    public void getFlights_routeServiceReturnsEmptyList_shouldReturnEmptyResult() {
-        mockRoutesRequestService(emptyList());
+    public void getFlightsResult_timeoutRejectedByValidator_shouldThrowValidationError() {
+        doThrow(IllegalArgumentException.class).when(requestValidator).validate(any());
+
+        try {
+            service.getFlightsResult(createFlightsRequest(Duration.ofMillis(Long.MAX_VALUE)));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(searchLimiter.getInFlight(), is(0));
+        }
+    }
+
+    @Test
+    public void getFlightsResultReactive_timeoutRejectedByValidator_shouldFailWithValidationError() {
+        doThrow(IllegalArgumentException.class).when(requestValidator).validate(any());
+
+        try {
+            service.getFlightsResultReactive(createFlightsRequest(Duration.ofMillis(Long.MAX_VALUE))).block();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(searchLimiter.getInFlight(), is(0));
+        }
+    }
+
+    @Test
+    public void getFlights_searchLimitReached_shouldRejectSearch() {
+        searchLimiter.tryAcquire();
+
+        try {
+            service.getFlights(createFlightsRequest());
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            verifyRouteCatalogCall(0);
+        }
+    }
+
+    @Test
+    public void getFlightsReactive_searchCompleted_shouldReleaseSearchLimit() {
+        mockRouteCatalog(emptyList());
+
+        service.getFlightsReactive(createFlightsRequest()).block();
+
+        assertThat(searchLimiter.getInFlight(), is(0));
+        assertThat(searchLimiter.tryAcquire(), is(true));
+    }
+
+    @Test
+    public void getFlightsReactive_routeCatalogLoading_shouldWaitWithoutBlocking() throws Exception {
+        var routeDirect = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var loading = new CompletableFuture<RouteCatalogSnapshot>();
+        when(routeCatalog.getSnapshotAsync()).thenReturn(Mono.fromFuture(loading));
+        mockInterconnectingRoutesBuilder(List.of(new InterconnectingRoute(List.of(routeDirect))));
+        var flightSchedule = new FlightSchedule(LocalDateTime.parse("2019-07-01T08:00"), LocalDateTime.parse("2019-07-01T10:00"));
+        mockSchedulesRequestServiceAsync(routeDirect, List.of(flightSchedule));
+
+        // block() is not allowed on the parallel scheduler, so the search fails if it waits for the catalog blocking
+        var flights = service.getFlightsReactive(createFlightsRequest(Duration.ofSeconds(5)))
+                .subscribeOn(Schedulers.parallel())
+                .toFuture();
+        Thread.sleep(100);
+        assertThat(flights.isDone(), is(false));
+        loading.complete(new RouteCatalogSnapshot(List.of(routeDirect), RouteGraph.of(List.of(routeDirect)), Instant.now()));
+
+        assertThat(flights.get(5, TimeUnit.SECONDS), hasSize(1));
+        verifyRouteCatalogCall(0);
+    }
+
+    @Test
+    public void getFlights_routeCatalogIsEmpty_shouldReturnEmptyResult() {
+        mockRouteCatalog(emptyList());
 
         List<Flight> flights = service.getFlights(createFlightsRequest());
 
         assertThat(flights, hasSize(0));
-        verifyRoutesRequestServiceCall(1);
+        verifyRouteCatalogCall(1);
         verifySchedulesRequestService(0);
     }
 
     @Test
     public void getFlights_directFlights_shouldReturnOnlyDirect() {
         var routeDirect = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
-        mockRoutesRequestService(List.of(routeDirect));
+        mockRouteCatalog(List.of(routeDirect));
         var interconnectingRoute = new InterconnectingRoute(List.of(routeDirect));
         mockInterconnectingRoutesBuilder(List.of(interconnectingRoute));
         var flightsRequest = createFlightsRequest(
@@ -117,7 +201,7 @@ public class FlightsServiceTest {
                 .arrivalDateTime(flightSchedule.getArrivalTime())
                 .build();
         verifyFlight(flights.get(0), List.of(expectedLeg));
-        verifyRoutesRequestServiceCall(1);
+        verifyRouteCatalogCall(1);
         var scheduleRequest = ScheduleRequest.builder()
                 .from(AIRPORT_A)
                 .to(AIRPORT_B)
@@ -127,11 +211,34 @@ public class FlightsServiceTest {
         verifySchedulesRequestService(scheduleRequest);
     }
 
+    @Test
+    public void getFlights_interconnectingFlights_shouldRecordStageTimers() {
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2));
+        mockInterconnectingRoutesBuilder(List.of(new InterconnectingRoute(List.of(route1, route2))));
+        var flightSchedule = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:00"),
+                LocalDateTime.parse("2019-07-01T10:00")
+        );
+        mockSchedulesRequestService(List.of(flightSchedule), List.of(flightSchedule));
+        mockSchedulesExecutor();
+
+        service.getFlights(createFlightsRequest(
+                LocalDateTime.parse("2019-07-01T07:00"),
+                LocalDateTime.parse("2019-07-03T07:00")
+        ));
+
+        assertThat(getStageCount("routes-search"), equalTo(1L));
+        assertThat(getStageCount("schedules"), equalTo(2L));
+        assertThat(getStageCount("assembly"), equalTo(1L));
+    }
+
     @Test
     public void getFlights_interconnectingFlights_shouldReturnConnection() {
         var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
         var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
-        mockRoutesRequestService(List.of(route1, route2));
+        mockRouteCatalog(List.of(route1, route2));
         var interconnectingRoute = new InterconnectingRoute(List.of(route1, route2));
         mockInterconnectingRoutesBuilder(List.of(interconnectingRoute));
         var flightsRequest = createFlightsRequest(
@@ -165,14 +272,14 @@ public class FlightsServiceTest {
                 .arrivalDateTime(flightSchedule2.getArrivalTime())
                 .build();
         verifyFlight(flights.get(0), List.of(expectedLeg1, expectedLeg2));
-        verifyRoutesRequestServiceCall(1);
+        verifyRouteCatalogCall(1);
     }
 
     @Test
     public void getFlights_interconnectingFlightsNoConnectionForSecondRoute_shouldReturnEmptyResult() {
         var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
         var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
-        mockRoutesRequestService(List.of(route1, route2));
+        mockRouteCatalog(List.of(route1, route2));
         var interconnectingRoute = new InterconnectingRoute(List.of(route1, route2));
         mockInterconnectingRoutesBuilder(List.of(interconnectingRoute));
         var flightsRequest = createFlightsRequest(
@@ -184,11 +291,12 @@ public class FlightsServiceTest {
                 LocalDateTime.parse("2019-07-01T10:00")
         );
         mockSchedulesRequestService(List.of(flightSchedule1), emptyList());
+        mockSchedulesExecutor();
 
         List<Flight> flights = service.getFlights(flightsRequest);
 
         assertThat(flights, hasSize(0));
-        verifyRoutesRequestServiceCall(1);
+        verifyRouteCatalogCall(1);
     }
 
     @Test
@@ -196,7 +304,7 @@ public class FlightsServiceTest {
         var directRoute = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
         var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
         var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
-        mockRoutesRequestService(List.of(route1, route2, directRoute));
+        mockRouteCatalog(List.of(route1, route2, directRoute));
         var interconnectingRouteDirect = new InterconnectingRoute(List.of(directRoute));
         var interconnectingRoute = new InterconnectingRoute(List.of(route1, route2));
         mockInterconnectingRoutesBuilder(List.of(interconnectingRouteDirect, interconnectingRoute));
@@ -242,7 +350,301 @@ public class FlightsServiceTest {
                 .build();
         verifyFlight(flights.get(0), List.of(expectedLegDirect));
         verifyFlight(flights.get(1), List.of(expectedLeg1, expectedLeg2));
-        verifyRoutesRequestServiceCall(1);
+        verifyRouteCatalogCall(1);
+    }
+
+    @Test
+    public void getFlights_limitReachedByDirectFlights_shouldNotRequestRoutesWithStops() {
+        var directRoute = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2, directRoute));
+        mockInterconnectingRoutesBuilder(List.of(
+                new InterconnectingRoute(List.of(directRoute)),
+                new InterconnectingRoute(List.of(route1, route2))
+        ));
+        var flightsRequest = createLimitedFlightsRequest(1);
+        var flightScheduleDirect = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:30"),
+                LocalDateTime.parse("2019-07-01T11:20")
+        );
+        mockSchedulesRequestService(List.of(flightScheduleDirect));
+        mockSchedulesExecutor();
+
+        List<Flight> flights = service.getFlights(flightsRequest);
+
+        assertThat(flights, hasSize(1));
+        verifyFlight(flights.get(0), List.of(createLeg(directRoute, flightScheduleDirect)));
+        verifySchedulesRequestService(1);
+    }
+
+    @Test
+    public void getFlightsReactive_equalFlightsOfRoutes_shouldKeepFlightOfFirstRouteWhateverRouteCompletesFirst() {
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2));
+        mockInterconnectingRoutesBuilder(List.of(
+                new InterconnectingRoute(List.of(route1)),
+                new InterconnectingRoute(List.of(route2))
+        ));
+        var flightSchedule = new FlightSchedule(LocalDateTime.parse("2019-07-01T09:30"), LocalDateTime.parse("2019-07-01T11:20"));
+        when(schedulesRequestService.requestAsync(argThat(it -> it != null && it.getTo().equals(AIRPORT_B))))
+                .thenReturn(Mono.just(Timetable.of(List.of(flightSchedule))).delayElement(Duration.ofMillis(100)));
+        mockSchedulesRequestServiceAsync(route2, List.of(flightSchedule));
+
+        List<Flight> flights = service.getFlightsReactive(createLimitedFlightsRequest(1)).block();
+
+        assertThat(flights, hasSize(1));
+        verifyFlight(flights.get(0), List.of(createLeg(route1, flightSchedule)));
+    }
+
+    @Test
+    public void getFlightsReactive_limitReachedByDirectFlights_shouldNotRequestRoutesWithStops() {
+        var directRoute = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2, directRoute));
+        mockInterconnectingRoutesBuilder(List.of(
+                new InterconnectingRoute(List.of(directRoute)),
+                new InterconnectingRoute(List.of(route1, route2))
+        ));
+        var flightScheduleDirect = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:30"),
+                LocalDateTime.parse("2019-07-01T11:20")
+        );
+        mockSchedulesRequestServiceAsync(directRoute, List.of(flightScheduleDirect));
+
+        List<Flight> flights = service.getFlightsReactive(createLimitedFlightsRequest(1)).block();
+
+        assertThat(flights, hasSize(1));
+        verifyFlight(flights.get(0), List.of(createLeg(directRoute, flightScheduleDirect)));
+        verify(schedulesRequestService, times(1)).requestAsync(any());
+    }
+
+    @Test
+    public void getFlights_oneRouteFailed_shouldReturnFlightsOfOtherRoutes() {
+        var directRoute = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2, directRoute));
+        mockInterconnectingRoutesBuilder(List.of(
+                new InterconnectingRoute(List.of(route1, route2)),
+                new InterconnectingRoute(List.of(directRoute))
+        ));
+        var flightsRequest = createFlightsRequest(
+                LocalDateTime.parse("2019-07-01T07:00"),
+                LocalDateTime.parse("2019-07-03T07:00")
+        );
+        var flightScheduleDirect = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:30"),
+                LocalDateTime.parse("2019-07-01T11:20")
+        );
+        when(schedulesRequestService.request(any()))
+                .thenThrow(new IllegalStateException("test"))
+                .thenReturn(Timetable.of(List.of(flightScheduleDirect)));
+        mockSchedulesExecutor();
+
+        List<Flight> flights = service.getFlights(flightsRequest);
+
+        assertThat(flights, hasSize(1));
+        verifyFlight(flights.get(0), List.of(createLeg(directRoute, flightScheduleDirect)));
+    }
+
+    @Test
+    public void getFlightsResult_routeTimedOut_shouldReturnPartialFlightsOfOtherRoutes() {
+        var directRoute = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2, directRoute));
+        mockInterconnectingRoutesBuilder(List.of(
+                new InterconnectingRoute(List.of(route1, route2)),
+                new InterconnectingRoute(List.of(directRoute))
+        ));
+        var flightsRequest = createFlightsRequest(Duration.ofSeconds(5));
+        var flightScheduleDirect = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:30"),
+                LocalDateTime.parse("2019-07-01T11:20")
+        );
+        when(schedulesRequestService.request(any()))
+                .thenThrow(Exceptions.propagate(new TimeoutException()))
+                .thenReturn(Timetable.of(List.of(flightScheduleDirect)));
+        mockSchedulesExecutor();
+
+        FlightsResult result = service.getFlightsResult(flightsRequest);
+
+        assertThat(result.isPartial(), is(true));
+        assertThat(result.getFlights(), hasSize(1));
+        verifyFlight(result.getFlights().get(0), List.of(createLeg(directRoute, flightScheduleDirect)));
+        assertThat(meterRegistry.counter(MetricNames.SEARCH_PARTIAL).count(), is(1.0));
+    }
+
+    @Test
+    public void getFlightsResult_deadlinePassed_shouldNotWaitForRoutes() {
+        var route = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        mockRouteCatalog(List.of(route));
+        mockInterconnectingRoutesBuilder(List.of(new InterconnectingRoute(List.of(route))));
+
+        FlightsResult result = service.getFlightsResult(createFlightsRequest(Duration.ofMillis(50)));
+
+        assertThat(result.isPartial(), is(true));
+        assertThat(result.getFlights(), hasSize(0));
+    }
+
+    @Test
+    public void getFlightsResultReactive_routeTimedOut_shouldReturnPartialFlightsOfOtherRoutes() {
+        var directRoute = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2, directRoute));
+        mockInterconnectingRoutesBuilder(List.of(
+                new InterconnectingRoute(List.of(route1, route2)),
+                new InterconnectingRoute(List.of(directRoute))
+        ));
+        var flightScheduleDirect = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:30"),
+                LocalDateTime.parse("2019-07-01T11:20")
+        );
+        mockSchedulesRequestServiceAsync(directRoute, List.of(flightScheduleDirect));
+        mockSchedulesRequestServiceAsync(route1, List.of(flightScheduleDirect));
+        when(schedulesRequestService.requestAsync(argThat(it -> it != null && it.getFrom().equals(AIRPORT_B))))
+                .thenReturn(Mono.error(new TimeoutException()));
+
+        FlightsResult result = service.getFlightsResultReactive(createFlightsRequest(Duration.ofSeconds(5))).block();
+
+        assertThat(result.isPartial(), is(true));
+        assertThat(result.getFlights(), hasSize(1));
+        verifyFlight(result.getFlights().get(0), List.of(createLeg(directRoute, flightScheduleDirect)));
+    }
+
+    @Test
+    public void getFlightsReactive_directAndInterconnectingFlights_shouldReturnDirectAndConnection() {
+        var directRoute = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2, directRoute));
+        var interconnectingRouteDirect = new InterconnectingRoute(List.of(directRoute));
+        var interconnectingRoute = new InterconnectingRoute(List.of(route1, route2));
+        mockInterconnectingRoutesBuilder(List.of(interconnectingRoute, interconnectingRouteDirect));
+        var flightsRequest = createFlightsRequest(
+                LocalDateTime.parse("2019-07-01T07:00"),
+                LocalDateTime.parse("2019-07-03T07:00")
+        );
+        var flightScheduleDirect = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:30"),
+                LocalDateTime.parse("2019-07-01T11:20")
+        );
+        var flightSchedule1 = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:00"),
+                LocalDateTime.parse("2019-07-01T10:00")
+        );
+        var flightSchedule2 = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T13:00"),
+                LocalDateTime.parse("2019-07-01T14:00")
+        );
+        mockSchedulesRequestServiceAsync(directRoute, List.of(flightScheduleDirect));
+        mockSchedulesRequestServiceAsync(route1, List.of(flightSchedule1));
+        mockSchedulesRequestServiceAsync(route2, List.of(flightSchedule2));
+
+        List<Flight> flights = service.getFlightsReactive(flightsRequest).block();
+
+        assertThat(flights, hasSize(2));
+        verifyFlight(flights.get(0), List.of(createLeg(directRoute, flightScheduleDirect)));
+        verifyFlight(flights.get(1), List.of(createLeg(route1, flightSchedule1), createLeg(route2, flightSchedule2)));
+        verifySchedulesRequestService(0);
+    }
+
+    @Test
+    public void getFlightsStream_directAndInterconnectingFlights_shouldEmitFlightsOfAllRoutes() {
+        var directRoute = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2, directRoute));
+        mockInterconnectingRoutesBuilder(List.of(
+                new InterconnectingRoute(List.of(directRoute)),
+                new InterconnectingRoute(List.of(route1, route2))
+        ));
+        var flightScheduleDirect = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:30"),
+                LocalDateTime.parse("2019-07-01T11:20")
+        );
+        var flightSchedule1 = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:00"),
+                LocalDateTime.parse("2019-07-01T10:00")
+        );
+        var flightSchedule2 = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T13:00"),
+                LocalDateTime.parse("2019-07-01T14:00")
+        );
+        mockSchedulesRequestServiceAsync(directRoute, List.of(flightScheduleDirect));
+        mockSchedulesRequestServiceAsync(route1, List.of(flightSchedule1));
+        mockSchedulesRequestServiceAsync(route2, List.of(flightSchedule2));
+        var flightsRequest = createFlightsRequest(
+                LocalDateTime.parse("2019-07-01T07:00"),
+                LocalDateTime.parse("2019-07-03T07:00")
+        );
+
+        List<Flight> flights = service.getFlightsStream(flightsRequest).collectList().block();
+
+        assertThat(flights, hasSize(2));
+        verifyFlight(flights.get(0), List.of(createLeg(directRoute, flightScheduleDirect)));
+        verifyFlight(flights.get(1), List.of(createLeg(route1, flightSchedule1), createLeg(route2, flightSchedule2)));
+    }
+
+    @Test
+    public void getFlightsBatch_oneRequestInvalid_shouldReturnResultPerRequest() {
+        var directRoute = TestUtils.createRoute(AIRPORT_A, AIRPORT_C);
+        mockRouteCatalog(List.of(directRoute));
+        mockInterconnectingRoutesBuilder(List.of(new InterconnectingRoute(List.of(directRoute))));
+        var flightSchedule = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:30"),
+                LocalDateTime.parse("2019-07-01T11:20")
+        );
+        mockSchedulesRequestServiceAsync(directRoute, List.of(flightSchedule));
+        var validRequest = createFlightsRequest(
+                LocalDateTime.parse("2019-07-01T07:00"),
+                LocalDateTime.parse("2019-07-03T07:00")
+        );
+        var invalidRequest = createLimitedFlightsRequest(0);
+        lenient().doThrow(new IllegalArgumentException("Limit must be positive"))
+                .when(requestValidator).validate(invalidRequest);
+        when(config.getMaxBatchSize()).thenReturn(10);
+        when(config.getBatchConcurrency()).thenReturn(2);
+
+        List<FlightsResult> results = service.getFlightsBatch(List.of(invalidRequest, validRequest)).block();
+
+        assertThat(results, hasSize(2));
+        assertThat(results.get(0), equalTo(FlightsResult.failed("Limit must be positive")));
+        assertThat(results.get(1).getFlights(), hasSize(1));
+        verifyFlight(results.get(1).getFlights().get(0), List.of(createLeg(directRoute, flightSchedule)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getFlightsBatch_moreRequestsThanMaxBatchSize_shouldThrowException() {
+        when(config.getMaxBatchSize()).thenReturn(1);
+
+        service.getFlightsBatch(List.of(createFlightsRequest(), createFlightsRequest()));
+    }
+
+    @Test
+    public void getFlightsReactive_noConnectionForSecondRoute_shouldReturnEmptyResult() {
+        var route1 = TestUtils.createRoute(AIRPORT_A, AIRPORT_B);
+        var route2 = TestUtils.createRoute(AIRPORT_B, AIRPORT_C);
+        mockRouteCatalog(List.of(route1, route2));
+        mockInterconnectingRoutesBuilder(List.of(new InterconnectingRoute(List.of(route1, route2))));
+        var flightsRequest = createFlightsRequest(
+                LocalDateTime.parse("2019-07-01T07:00"),
+                LocalDateTime.parse("2019-07-03T07:00")
+        );
+        var flightSchedule1 = new FlightSchedule(
+                LocalDateTime.parse("2019-07-01T09:00"),
+                LocalDateTime.parse("2019-07-01T10:00")
+        );
+        mockSchedulesRequestServiceAsync(route1, List.of(flightSchedule1));
+        mockSchedulesRequestServiceAsync(route2, emptyList());
+
+        List<Flight> flights = service.getFlightsReactive(flightsRequest).block();
+
+        assertThat(flights, hasSize(0));
     }
 
     // Util methods
@@ -255,12 +657,31 @@ public class FlightsServiceTest {
                 .build();
     }
 
+    private FlightsRequest createLimitedFlightsRequest(int limit) {
+        return FlightsRequest.builder()
+                .departureDateTime(LocalDateTime.parse("2019-07-01T07:00"))
+                .arrivalDateTime(LocalDateTime.parse("2019-07-03T07:00"))
+                .limit(limit)
+                .build();
+    }
+
+    private FlightsRequest createFlightsRequest(Duration timeout) {
+        return FlightsRequest.builder()
+                .departureDateTime(LocalDateTime.parse("2019-07-01T07:00"))
+                .arrivalDateTime(LocalDateTime.parse("2019-07-03T07:00"))
+                .timeout(timeout)
+                .build();
+    }
+
     private FlightsRequest createFlightsRequest() {
         return FlightsRequest.builder().build();
     }
 
-    private void mockRoutesRequestService(List<Route> routes) {
-        when(routesRequestService.request(any(), any())).thenReturn(routes);
+    private void mockRouteCatalog(List<Route> routes) {
+        var graph = RouteGraph.of(routes);
+        lenient().when(routeCatalog.getGraph()).thenReturn(graph);
+        lenient().when(routeCatalog.getSnapshotAsync())
+                .thenReturn(Mono.just(new RouteCatalogSnapshot(routes, graph, Instant.now())));
     }
 
     private void mockRoutesRequestValidatorException() {
@@ -270,27 +691,47 @@ public class FlightsServiceTest {
     @SafeVarargs
     private void mockSchedulesRequestService(List<FlightSchedule> flightSchedule,
                                              List<FlightSchedule>... flightSchedules) {
-        when(schedulesRequestService.request(any())).thenReturn(flightSchedule, flightSchedules);
+        var timetables = Arrays.stream(flightSchedules)
+                .map(Timetable::of)
+                .toArray(Timetable[]::new);
+        when(schedulesRequestService.request(any())).thenReturn(Timetable.of(flightSchedule), timetables);
+    }
+
+    private void mockSchedulesRequestServiceAsync(Route route,
+                                                  List<FlightSchedule> flightSchedules) {
+        when(schedulesRequestService.requestAsync(argThat(it -> it != null
+                && it.getFrom().equals(route.getAirportFrom())
+                && it.getTo().equals(route.getAirportTo()))))
+                .thenReturn(Mono.just(Timetable.of(flightSchedules)));
+    }
+
+    private Flight.Leg createLeg(Route route,
+                                 FlightSchedule flightSchedule) {
+        return Flight.Leg.builder()
+                .departureAirport(route.getAirportFrom())
+                .arrivalAirport(route.getAirportTo())
+                .departureDateTime(flightSchedule.getDepartureTime())
+                .arrivalDateTime(flightSchedule.getArrivalTime())
+                .build();
     }
 
     private void mockInterconnectingRoutesBuilder(List<InterconnectingRoute> routes) {
-        when(interconnectingRoutesBuilder.build(any(), anyList())).thenReturn(routes);
+        when(interconnectingRoutesBuilder.build(any(), any())).thenReturn(routes);
     }
 
-    @SuppressWarnings("unchecked")
     private void mockSchedulesExecutor() {
-        Mockito.when(schedulesExecutor.submit(argThat((ArgumentMatcher<Callable<InterconnectingRoute>>) argument -> {
-            try {
-                argument.call();
-            } catch (Exception e) {
-                Assert.fail();
-            }
-            return true;
-        }))).thenReturn(Mockito.mock(Future.class));
-    }
-
-    private void verifyRoutesRequestServiceCall(int times) {
-        verify(routesRequestService, times(times)).request(null, singleton(OperatorNames.RYANAIR));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(schedulesExecutor).execute(any());
+    }
+
+    private long getStageCount(String stage) {
+        return meterRegistry.timer(MetricNames.SEARCH_STAGE, MetricNames.STAGE_TAG, stage).count();
+    }
+
+    private void verifyRouteCatalogCall(int times) {
+        verify(routeCatalog, times(times)).getGraph();
     }
 
     private void verifySchedulesRequestService(int times) {
@@ -1,13 +1,15 @@
 package test.maksim.flights.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import test.maksim.flights.Config;
+import test.maksim.flights.StubExchangeFunction;
 import test.maksim.flights.domain.Route;
+import test.maksim.flights.parser.RoutesResponseParser;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
-import org.springframework.web.client.RestTemplate;
 import test.maksim.flights.constants.OperatorNames;
 
 import java.util.List;
@@ -20,17 +22,26 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class RoutesRequestServiceTest {
 
-    @InjectMocks
+    private static final String SERVICE_URL = "http://routes";
+
+    private final StubExchangeFunction exchangeFunction = new StubExchangeFunction();
+
     private RoutesRequestService service;
 
-    @Mock
-    private RestTemplate restTemplate;
     @Mock
     private Config config;
 
+    @Before
+    public void setUp() {
+        var upstreamCallPolicy = new UpstreamCallPolicy(0, 1, 10, 0, 10, false, 20, 20, 10, 0.5, 5000, new SimpleMeterRegistry());
+        service = new RoutesRequestService(exchangeFunction.createWebClient(), config, new RoutesResponseParser(),
+                upstreamCallPolicy);
+        when(config.getRoutesServiceUrl()).thenReturn(SERVICE_URL);
+    }
+
     @Test
     public void request_nothingFound_shouldReturnEmptyList() {
-        mockRestTemplate(null);
+        mockRoutesService(new Route[0]);
 
         List<Route> routes = service.request(null, List.of(OperatorNames.RYANAIR));
 
@@ -42,27 +53,34 @@ public class RoutesRequestServiceTest {
         var route1 = createRoute(null, OperatorNames.RYANAIR);
         var route2 = createRoute(null, "unknown");
         var route3 = createRoute("some airport", OperatorNames.RYANAIR);
-        mockRestTemplate(new Route[]{route1, route2, route3});
+        mockRoutesService(new Route[]{route1, route2, route3});
 
         List<Route> routes = service.request(null, List.of(OperatorNames.RYANAIR));
 
         assertThat(routes, equalTo(List.of(route1)));
     }
 
+    @Test(expected = RuntimeException.class)
+    public void request_serviceError_shouldThrowException() {
+        exchangeFunction.fail(SERVICE_URL);
+
+        service.request(null, List.of(OperatorNames.RYANAIR));
+    }
+
     // Util methods
 
     private Route createRoute(String connectingAirport,
                               String operator) {
         var route = new Route();
+        route.setAirportFrom("a");
+        route.setAirportTo("b");
         route.setConnectingAirport(connectingAirport);
         route.setOperator(operator);
 
         return route;
     }
 
-    private void mockRestTemplate(Route[] routes) {
-        var serviceUrl = "url";
-        when(config.getRoutesServiceUrl()).thenReturn(serviceUrl);
-        when(restTemplate.getForObject(serviceUrl, Route[].class)).thenReturn(routes);
+    private void mockRoutesService(Route[] routes) {
+        exchangeFunction.respond(SERVICE_URL, routes);
     }
-}
\ No newline at end of file
+}
@@ -1,73 +1,99 @@
 package test.maksim.flights.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import test.maksim.flights.Config;
+import test.maksim.flights.StubExchangeFunction;
+import test.maksim.flights.TestUtils;
 import test.maksim.flights.domain.FlightSchedule;
 import test.maksim.flights.domain.ScheduleRequest;
 import test.maksim.flights.domain.SchedulesResponse;
+import test.maksim.flights.domain.Timetable;
+import test.maksim.flights.domain.TimetableKey;
+import test.maksim.flights.parser.SchedulesResponseParser;
+import test.maksim.flights.utils.FixedExpiry;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertThat;
-import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SchedulesRequestServiceTest {
 
-    private static final int YEAR = 2019;
+    private static final int YEAR = 2149;
     private static final int MONTH = 7;
     private static final int DAY_1 = 1;
     private static final int DAY_2 = 2;
     private static final int DAY_3 = 3;
-    private static final String SERVICE_URL = "url";
+    private static final String SERVICE_URL = "http://schedules";
+    private static final int MAX_RETRIES = 2;
+    private static final int CACHE_TTL_MINUTES = 60;
     private static final String AIRPORT_FROM = "a";
     private static final String AIRPORT_TO = "b";
     private static final LocalDateTime DATE_TIME = LocalDateTime.of(YEAR, MONTH, DAY_1, 9, 0);
     private static final LocalDateTime DATE_TIME_END = LocalDateTime.of(YEAR, MONTH, DAY_2, 7, 0);
 
-    @InjectMocks
+    private final StubExchangeFunction exchangeFunction = new StubExchangeFunction();
+
     private SchedulesRequestService service;
+    private UpstreamCallPolicy upstreamCallPolicy;
 
-    @Mock
-    private RestTemplate restTemplate;
     @Mock
     private Config config;
 
     @Before
     public void setUp() {
+        service = createService(Caffeine.newBuilder().buildAsync());
         mockConfig();
     }
 
     @Test
     public void request_emptyResponse_shouldReturnEmptyList() {
-        mockSchedulesRequestService(createResponse(List.of()));
+        mockSchedulesService(MONTH, createResponse(List.of()));
 
-        List<FlightSchedule> flightSchedules = service.request(createRequest());
+        List<FlightSchedule> flightSchedules = TestUtils.toFlightSchedules(service.request(createRequest()));
 
         assertThat(flightSchedules, hasSize(0));
     }
 
     @Test
     public void request_requestError_shouldReturnEmptyList() {
-        mockSchedulesRequestServiceException();
+        mockSchedulesServiceException();
 
-        List<FlightSchedule> flightSchedules = service.request(createRequest());
+        List<FlightSchedule> flightSchedules = TestUtils.toFlightSchedules(service.request(createRequest()));
 
         assertThat(flightSchedules, hasSize(0));
     }
 
+    @Test
+    public void request_requestError_shouldRetry() {
+        mockSchedulesServiceException();
+
+        service.request(createRequest());
+
+        assertThat(exchangeFunction.getRequestedUrls(), hasSize(1 + MAX_RETRIES));
+    }
+
     @Test
     public void request_3daysInSchedule_shouldMatch2Schedules() {
         var schedule1 = createSchedule(8, 9);
@@ -77,9 +103,9 @@ public class SchedulesRequestServiceTest {
         var day2 = createDay(DAY_2, List.of(schedule1, schedule3));
         var day3 = createDay(DAY_3, List.of(schedule1));
         var response = createResponse(List.of(day1, day2, day3));
-        mockSchedulesRequestService(response);
+        mockSchedulesService(MONTH, response);
 
-        List<FlightSchedule> flightSchedules = service.request(createRequest());
+        List<FlightSchedule> flightSchedules = TestUtils.toFlightSchedules(service.request(createRequest()));
 
         verifyFullUrl();
         var flightSchedule1 = createFlightSchedule(DAY_1, 10, DAY_1, 12);
@@ -92,23 +118,178 @@ public class SchedulesRequestServiceTest {
         var schedule1 = createSchedule(23, 1);
         var day1 = createDay(DAY_1, List.of(schedule1));
         var response = createResponse(List.of(day1));
-        mockSchedulesRequestService(response);
+        mockSchedulesService(MONTH, response);
 
-        List<FlightSchedule> flightSchedules = service.request(createRequest());
+        List<FlightSchedule> flightSchedules = TestUtils.toFlightSchedules(service.request(createRequest()));
 
         verifyFullUrl();
         var flightSchedule1 = createFlightSchedule(DAY_1, 23, DAY_2, 1);
         assertThat(flightSchedules, equalTo(List.of(flightSchedule1)));
     }
 
+    @Test
+    public void request_sameMonthRequestedTwice_shouldRequestServiceOnce() {
+        var day1 = createDay(DAY_1, List.of(createSchedule(10, 12)));
+        mockSchedulesService(MONTH, createResponse(List.of(day1)));
+
+        List<FlightSchedule> flightSchedules1 = TestUtils.toFlightSchedules(service.request(createRequest()));
+        List<FlightSchedule> flightSchedules2 = TestUtils.toFlightSchedules(service.request(createRequest()));
+
+        verifyFullUrl();
+        assertThat(flightSchedules1, hasSize(1));
+        assertThat(flightSchedules2, equalTo(flightSchedules1));
+    }
+
+    @Test
+    public void request_requestErrorThenSuccess_shouldNotCacheError() {
+        var day1 = createDay(DAY_1, List.of(createSchedule(10, 12)));
+        mockSchedulesServiceException();
+
+        List<FlightSchedule> flightSchedules1 = TestUtils.toFlightSchedules(service.request(createRequest()));
+        mockSchedulesService(MONTH, createResponse(List.of(day1)));
+        List<FlightSchedule> flightSchedules2 = TestUtils.toFlightSchedules(service.request(createRequest()));
+
+        assertThat(flightSchedules1, hasSize(0));
+        assertThat(flightSchedules2, hasSize(1));
+    }
+
+    @Test
+    public void request_concurrentRequestsOfSameMonth_shouldRequestServiceOnce() throws Exception {
+        var day1 = createDay(DAY_1, List.of(createSchedule(10, 12)));
+        exchangeFunction.respond(createFullUrl(MONTH), createResponse(List.of(day1)), Duration.ofMillis(200));
+
+        var result1 = service.requestAsync(createRequest()).toFuture();
+        var result2 = service.requestAsync(createRequest()).toFuture();
+
+        assertThat(result1.get(5, TimeUnit.SECONDS).size(), equalTo(1));
+        assertThat(result2.get(5, TimeUnit.SECONDS).size(), equalTo(1));
+        verifyFullUrl();
+    }
+
+    @Test
+    public void requestAsync_timeoutExceeded_shouldFailAndStillCacheMonth() throws Exception {
+        var day1 = createDay(DAY_1, List.of(createSchedule(10, 12)));
+        exchangeFunction.respond(createFullUrl(MONTH), createResponse(List.of(day1)), Duration.ofMillis(200));
+
+        try {
+            service.requestAsync(createRequest(Duration.ofMillis(10))).toFuture().get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+
+        assertThat(service.requestAsync(createRequest()).toFuture().get(5, TimeUnit.SECONDS).size(), equalTo(1));
+        verifyFullUrl();
+    }
+
+    @Test
+    public void request_monthOlderThanTtl_shouldServeItAndRevalidate() {
+        var ticker = new AtomicLong();
+        service = createService(Caffeine.newBuilder()
+                .ticker(ticker::get)
+                .expireAfter(new FixedExpiry<TimetableKey, Timetable>(Duration.ofMinutes(2 * CACHE_TTL_MINUTES)))
+                .buildAsync());
+        when(config.getSchedulesCacheStaleMinutes()).thenReturn(CACHE_TTL_MINUTES);
+        mockSchedulesService(MONTH, createResponse(List.of(createDay(DAY_1, List.of(createSchedule(10, 12))))));
+        service.request(createRequest());
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(CACHE_TTL_MINUTES));
+        mockSchedulesService(MONTH, createResponse(List.of(createDay(DAY_1, List.of(createSchedule(10, 12), createSchedule(14, 16))))));
+
+        List<FlightSchedule> stale = TestUtils.toFlightSchedules(service.request(createRequest()));
+        List<FlightSchedule> revalidated = TestUtils.toFlightSchedules(service.request(createRequest()));
+
+        assertThat(stale, hasSize(1));
+        assertThat(revalidated, hasSize(2));
+        assertThat(exchangeFunction.getRequestedUrls(), hasSize(2));
+    }
+
+    @Test
+    public void request_monthOlderThanTtlWithOpenCircuit_shouldServeItWithoutRevalidating() {
+        var ticker = new AtomicLong();
+        service = createService(Caffeine.newBuilder()
+                .ticker(ticker::get)
+                .expireAfter(new FixedExpiry<TimetableKey, Timetable>(Duration.ofMinutes(2 * CACHE_TTL_MINUTES)))
+                .buildAsync());
+        when(config.getSchedulesCacheStaleMinutes()).thenReturn(CACHE_TTL_MINUTES);
+        mockSchedulesService(MONTH, createResponse(List.of(createDay(DAY_1, List.of(createSchedule(10, 12))))));
+        service.request(createRequest());
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(CACHE_TTL_MINUTES));
+        exchangeFunction.fail(createFullUrl(MONTH + 1));
+        var nextMonthRequest = ScheduleRequest.builder()
+                .from(AIRPORT_FROM)
+                .to(AIRPORT_TO)
+                .dateTime(DATE_TIME.plusMonths(1))
+                .dateTimeEnd(DATE_TIME_END.plusMonths(1))
+                .build();
+        for (int i = 0; i < 5; i++) {
+            service.request(nextMonthRequest);
+        }
+        clearInvocations(upstreamCallPolicy);
+
+        List<FlightSchedule> stale = TestUtils.toFlightSchedules(service.request(createRequest()));
+
+        assertThat(stale, hasSize(1));
+        verify(upstreamCallPolicy, never()).apply(any(), any());
+    }
+
+    @Test
+    public void request_windowCrossesMonths_shouldMergeAllMonthsInTimeOrder() {
+        var day31 = createDay(31, List.of(createSchedule(10, 12), createSchedule(6, 7)));
+        var nextMonthDay1 = createDay(DAY_1, List.of(createSchedule(8, 9), createSchedule(13, 14)));
+        mockSchedulesService(MONTH, createResponse(List.of(day31)));
+        mockSchedulesService(MONTH + 1, createResponse(List.of(nextMonthDay1)));
+        var request = ScheduleRequest.builder()
+                .from(AIRPORT_FROM)
+                .to(AIRPORT_TO)
+                .dateTime(LocalDateTime.of(YEAR, MONTH, 31, 9, 0))
+                .dateTimeEnd(LocalDateTime.of(YEAR, MONTH + 1, DAY_1, 12, 0))
+                .build();
+
+        List<FlightSchedule> flightSchedules = TestUtils.toFlightSchedules(service.request(request));
+
+        assertThat(flightSchedules, equalTo(List.of(
+                new FlightSchedule(LocalDateTime.of(YEAR, MONTH, 31, 10, 0), LocalDateTime.of(YEAR, MONTH, 31, 12, 0)),
+                new FlightSchedule(LocalDateTime.of(YEAR, MONTH + 1, DAY_1, 8, 0), LocalDateTime.of(YEAR, MONTH + 1, DAY_1, 9, 0))
+        )));
+    }
+
+    @Test
+    public void request_windowOfYears_shouldRequestBoundedNumberOfMonths() {
+        var request = ScheduleRequest.builder()
+                .from(AIRPORT_FROM)
+                .to(AIRPORT_TO)
+                .dateTime(DATE_TIME)
+                .dateTimeEnd(DATE_TIME.plusYears(30))
+                .build();
+        for (var month = YearMonth.of(YEAR, MONTH); month.isBefore(YearMonth.of(YEAR + 2, MONTH)); month = month.plusMonths(1)) {
+            exchangeFunction.respond(createFullUrl(month.getYear(), month.getMonthValue()), createResponse(List.of()));
+        }
+
+        service.request(request);
+
+        assertThat(new HashSet<>(exchangeFunction.getRequestedUrls()), hasSize(13));
+    }
+
     // Util methods
 
+    private SchedulesRequestService createService(AsyncCache<TimetableKey, Timetable> timetableCache) {
+        upstreamCallPolicy = spy(new UpstreamCallPolicy(MAX_RETRIES, 1, 10, 0.1, 10, false, 20, 20, 10, 0.5, 5000,
+                new SimpleMeterRegistry()));
+        return new SchedulesRequestService(exchangeFunction.createWebClient(), config, timetableCache,
+                new SchedulesResponseParser(), upstreamCallPolicy);
+    }
+
     private ScheduleRequest createRequest() {
+        return createRequest(null);
+    }
+
+    private ScheduleRequest createRequest(Duration timeout) {
         return ScheduleRequest.builder()
                 .from(AIRPORT_FROM)
                 .to(AIRPORT_TO)
                 .dateTime(DATE_TIME)
                 .dateTimeEnd(DATE_TIME_END)
+                .timeout(timeout)
                 .build();
     }
 
@@ -148,12 +329,22 @@ public class SchedulesRequestServiceTest {
         return new FlightSchedule(departure, arrival);
     }
 
-    private void mockSchedulesRequestService(SchedulesResponse response) {
-        when(restTemplate.getForObject(anyString(), eq(SchedulesResponse.class))).thenReturn(response);
+    private String createFullUrl(int month) {
+        return createFullUrl(YEAR, month);
+    }
+
+    private String createFullUrl(int year,
+                                 int month) {
+        return SERVICE_URL + String.format("/%s/%s/years/%d/months/%d", AIRPORT_FROM, AIRPORT_TO, year, month);
+    }
+
+    private void mockSchedulesService(int month,
+                                      SchedulesResponse response) {
+        exchangeFunction.respond(createFullUrl(month), response);
     }
 
-    private void mockSchedulesRequestServiceException() {
-        doThrow(RuntimeException.class).when(restTemplate).getForObject(anyString(), eq(SchedulesResponse.class));
+    private void mockSchedulesServiceException() {
+        exchangeFunction.fail(createFullUrl(MONTH));
     }
 
     private void mockConfig() {
@@ -161,7 +352,6 @@ public class SchedulesRequestServiceTest {
     }
 
     private void verifyFullUrl() {
-        var fullUrl = SERVICE_URL + String.format("/%s/%s/years/%d/months/%d", AIRPORT_FROM, AIRPORT_TO, YEAR, MONTH);
-        verify(restTemplate).getForObject(eq(fullUrl), eq(SchedulesResponse.class));
+        assertThat(exchangeFunction.getRequestedUrls(), equalTo(List.of(createFullUrl(MONTH))));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+package test.maksim.flights.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import test.maksim.flights.utils.CircuitBreaker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class UpstreamCallPolicyTest {
+
+    private static final String UPSTREAM = "test";
+    private static final int CIRCUIT_MIN_CALLS = 4;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void apply_transientErrors_shouldRetryUntilSuccess() {
+        var policy = createPolicy(2, 10, false);
+
+        var result = policy.apply(UPSTREAM, failingCall(2, new IllegalStateException("test"))).block();
+
+        assertThat(result, is("ok"));
+        assertThat(calls.get(), is(3));
+        assertThat(meterRegistry.counter(UpstreamCallPolicy.RETRIES_METRIC, UpstreamCallPolicy.UPSTREAM_TAG, UPSTREAM).count(), is(2.0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void apply_moreErrorsThanRetries_shouldFail() {
+        var policy = createPolicy(2, 10, false);
+
+        policy.apply(UPSTREAM, failingCall(3, new IllegalStateException("test"))).block();
+    }
+
+    @Test
+    public void apply_clientError_shouldNotRetry() {
+        var policy = createPolicy(2, 10, false);
+
+        try {
+            policy.apply(UPSTREAM, failingCall(1, WebClientResponseException.create(HttpStatus.NOT_FOUND.value(),
+                    "Not Found", null, null, null))).block();
+        } catch (WebClientResponseException e) {
+            assertThat(calls.get(), is(1));
+        }
+    }
+
+    @Test
+    public void apply_retryBudgetSpent_shouldNotRetry() {
+        var policy = createPolicy(2, 1, false);
+
+        try {
+            policy.apply(UPSTREAM, failingCall(3, new IllegalStateException("test"))).block();
+        } catch (IllegalStateException e) {
+            assertThat(calls.get(), is(2));
+        }
+    }
+
+    @Test
+    public void apply_callSlowerThanP95_shouldReturnHedgedResponse() {
+        var policy = createPolicy(0, 10, true);
+        warmUp(policy);
+        var slowOnce = Mono.defer(() -> calls.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(5)).map(it -> "slow")
+                : Mono.just("hedged"));
+
+        long start = System.nanoTime();
+        var result = policy.apply(UPSTREAM, slowOnce).block();
+
+        assertThat(result, is("hedged"));
+        assertThat(Duration.ofNanos(System.nanoTime() - start).toMillis(), lessThan(1000L));
+        assertThat(calls.get(), is(2));
+    }
+
+    @Test
+    public void apply_callFailedAfterHedgeSent_shouldReturnHedgedResponse() {
+        var policy = createPolicy(0, 10, true);
+        warmUp(policy);
+        var failingOnce = Mono.defer(() -> calls.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(200)).then(Mono.<String>error(new IllegalStateException("test")))
+                : Mono.delay(Duration.ofMillis(400)).map(it -> "hedged"));
+
+        var result = policy.apply(UPSTREAM, failingOnce).block();
+
+        assertThat(result, is("hedged"));
+        assertThat(calls.get(), is(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void apply_callAndHedgeFailed_shouldFail() {
+        var policy = createPolicy(0, 10, true);
+        warmUp(policy);
+
+        policy.apply(UPSTREAM, Mono.delay(Duration.ofMillis(200))
+                .then(Mono.<String>error(new IllegalStateException("test")))).block();
+    }
+
+    @Test
+    public void apply_circuitOpen_shouldFailWithoutCalling() {
+        var policy = createPolicy(0, 10, false);
+        for (int i = 0; i < CIRCUIT_MIN_CALLS; i++) {
+            try {
+                policy.apply(UPSTREAM, failingCall(Integer.MAX_VALUE, new IllegalStateException("test"))).block();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+
+        try {
+            policy.apply(UPSTREAM, failingCall(0, null)).block();
+            Assert.fail();
+        } catch (CircuitBreaker.OpenException e) {
+            assertThat(calls.get(), is(CIRCUIT_MIN_CALLS));
+            assertThat(policy.getCircuitState(UPSTREAM), is(CircuitBreaker.State.OPEN));
+        }
+    }
+
+    // Util methods
+
+    private UpstreamCallPolicy createPolicy(int maxRetries,
+                                            int retryBudgetMaxTokens,
+                                            boolean hedgingEnabled) {
+        return new UpstreamCallPolicy(maxRetries, 1, 10, 0, retryBudgetMaxTokens, hedgingEnabled, 20,
+                CIRCUIT_MIN_CALLS, CIRCUIT_MIN_CALLS, 0.5, 60_000, meterRegistry);
+    }
+
+    private void warmUp(UpstreamCallPolicy policy) {
+        for (int i = 0; i < 20; i++) {
+            policy.apply(UPSTREAM, Mono.delay(Duration.ofMillis(5)).map(it -> "warm-up")).block();
+        }
+    }
+
+    private Mono<String> failingCall(int failures,
+                                     RuntimeException error) {
+        return Mono.defer(() -> calls.incrementAndGet() <= failures ? Mono.error(error) : Mono.just("ok"));
+    }
+}
@@ -0,0 +1,107 @@
+package test.maksim.flights.utils;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AdaptiveLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private final AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 4, Duration.ofSeconds(1));
+
+    @Test
+    public void tryAcquire_limitReached_shouldReject() {
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        assertThat(limiter.tryAcquire(), is(false));
+        assertThat(limiter.getRejected(), is(1L));
+    }
+
+    @Test
+    public void release_fastCallsAtLimit_shouldIncreaseLimit() {
+        for (int i = 0; i < 3; i++) {
+            acquireAll();
+            releaseAll(FAST);
+        }
+
+        assertThat(limiter.getLimit(), is(3));
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    @Test
+    public void release_slowCalls_shouldDecreaseLimitToMin() {
+        for (int i = 0; i < 20; i++) {
+            acquireAll();
+            releaseAll(SLOW);
+        }
+
+        assertThat(limiter.getLimit(), is(1));
+    }
+
+    @Test
+    public void release_concurrentSlowCalls_shouldDecreaseLimitOnce() {
+        var wideLimiter = new AdaptiveLimiter(10, 1, 10, Duration.ofSeconds(1));
+        for (int i = 0; i < 10; i++) {
+            wideLimiter.tryAcquire();
+        }
+
+        for (int i = 0; i < 10; i++) {
+            wideLimiter.release(SLOW);
+        }
+
+        assertThat(wideLimiter.getLimit(), is(9));
+    }
+
+    @Test
+    public void releaseIgnored_failedCalls_shouldNotChangeLimit() {
+        for (int i = 0; i < 3; i++) {
+            acquireAll();
+            while (limiter.getInFlight() > 0) {
+                limiter.releaseIgnored();
+            }
+        }
+
+        assertThat(limiter.getLimit(), is(2));
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    @Test
+    public void releaseTimedOut_deadlineWithinThreshold_shouldNotChangeLimit() {
+        for (int i = 0; i < 3; i++) {
+            acquireAll();
+            while (limiter.getInFlight() > 0) {
+                limiter.releaseTimedOut(FAST);
+            }
+        }
+
+        assertThat(limiter.getLimit(), is(2));
+    }
+
+    @Test
+    public void releaseTimedOut_deadlineOverThreshold_shouldDecreaseLimit() {
+        acquireAll();
+
+        limiter.releaseTimedOut(SLOW);
+
+        assertThat(limiter.getLimit(), is(1));
+    }
+
+    // Util methods
+
+    private void acquireAll() {
+        while (limiter.tryAcquire()) {
+        }
+    }
+
+    private void releaseAll(long latencyNanos) {
+        while (limiter.getInFlight() > 0) {
+            limiter.release(latencyNanos);
+        }
+    }
+}
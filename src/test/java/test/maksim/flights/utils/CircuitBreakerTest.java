@@ -0,0 +1,120 @@
+package test.maksim.flights.utils;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(50);
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(4, 2, 0.5, OPEN_DURATION);
+
+    @Test
+    public void onFailure_failureRateBelowThreshold_shouldStayClosed() {
+        call(false);
+        call(false);
+        call(true);
+
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+        assertThat(circuitBreaker.tryAcquire(), notNullValue());
+    }
+
+    @Test
+    public void onFailure_failureRateReached_shouldOpenAndReject() {
+        call(false);
+        call(true);
+
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.OPEN));
+        assertThat(circuitBreaker.tryAcquire(), nullValue());
+    }
+
+    @Test
+    public void tryAcquire_openDurationPassed_shouldLetSingleTrialThrough() throws Exception {
+        openCircuit();
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+
+        assertThat(circuitBreaker.tryAcquire(), notNullValue());
+        assertThat(circuitBreaker.tryAcquire(), nullValue());
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+    }
+
+    @Test
+    public void onSuccess_callSentBeforeOpenSucceededDuringTrial_shouldStayHalfOpen() throws Exception {
+        var lateCall = circuitBreaker.tryAcquire();
+        openCircuit();
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+        var trial = circuitBreaker.tryAcquire();
+
+        lateCall.onSuccess();
+
+        assertThat(trial, notNullValue());
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+        assertThat(circuitBreaker.tryAcquire(), nullValue());
+    }
+
+    @Test
+    public void onCancel_callSentBeforeOpenCancelledDuringTrial_shouldNotLetSecondTrialThrough() throws Exception {
+        var lateCall = circuitBreaker.tryAcquire();
+        openCircuit();
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+        circuitBreaker.tryAcquire();
+
+        lateCall.onCancel();
+
+        assertThat(circuitBreaker.tryAcquire(), nullValue());
+    }
+
+    @Test
+    public void onCancel_trialCancelled_shouldLetNextTrialThrough() throws Exception {
+        openCircuit();
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+
+        circuitBreaker.tryAcquire().onCancel();
+
+        assertThat(circuitBreaker.tryAcquire(), notNullValue());
+    }
+
+    @Test
+    public void onSuccess_trialSucceeded_shouldClose() throws Exception {
+        openCircuit();
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+
+        call(false);
+
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void onFailure_trialFailed_shouldOpenAgain() throws Exception {
+        openCircuit();
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+
+        call(true);
+
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.OPEN));
+        assertThat(circuitBreaker.tryAcquire(), nullValue());
+    }
+
+    // Util methods
+
+    private void openCircuit() {
+        call(true);
+        call(true);
+    }
+
+    private void call(boolean failure) {
+        var permit = circuitBreaker.tryAcquire();
+        assertThat(permit, notNullValue());
+        if (failure) {
+            permit.onFailure();
+        } else {
+            permit.onSuccess();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package test.maksim.flights.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import test.maksim.flights.constants.ExecutionMode;
+import test.maksim.flights.constants.RejectionPolicy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class TaskExecutorsTest {
+
+    @Test
+    public void create_platformMode_shouldCreateThreadPool() {
+        var result = TaskExecutors.create(ExecutionMode.PLATFORM, "test-", 1, 2, 10, 10, RejectionPolicy.ABORT);
+
+        assertThat(result, is(instanceOf(ThreadPoolTaskExecutor.class)));
+        assertThat(((ThreadPoolTaskExecutor) result).getMaxPoolSize(), is(2));
+    }
+
+    @Test(expected = TaskRejectedException.class)
+    public void create_platformModeQueueFull_shouldRejectTask() {
+        var executor = (ThreadPoolTaskExecutor) TaskExecutors.create(ExecutionMode.PLATFORM, "test-", 1, 1, 10,
+                1, RejectionPolicy.ABORT);
+        executor.initialize();
+        var release = new CountDownLatch(1);
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                executor.execute(() -> await(release));
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void create_platformModeCallerRuns_shouldRunTaskOnCallerThread() throws Exception {
+        var executor = (ThreadPoolTaskExecutor) TaskExecutors.create(ExecutionMode.PLATFORM, "test-", 1, 1, 10,
+                1, RejectionPolicy.CALLER_RUNS);
+        executor.initialize();
+        var release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        executor.execute(() -> await(release));
+
+        var result = executor.submit(() -> Thread.currentThread().getName());
+
+        assertThat(result.get(), is(Thread.currentThread().getName()));
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void monitor_platformMode_shouldRegisterPoolGauges() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var executor = (ThreadPoolTaskExecutor) TaskExecutors.create(ExecutionMode.PLATFORM, "test-", 1, 1, 10, 10, RejectionPolicy.ABORT);
+        TaskExecutors.monitor(executor, "test", meterRegistry);
+        executor.initialize();
+
+        executor.execute(() -> {
+        });
+
+        assertThat(meterRegistry.get("executor.pool.size").tag("name", "test").gauge().value(), is(1.0));
+        assertThat(meterRegistry.get("executor.queued").tag("name", "test").gauge().value(), is(0.0));
+        executor.shutdown();
+    }
+
+    @Test
+    public void create_virtualModeSupported_shouldCreateVirtualThreadsExecutor() throws Exception {
+        assumeTrue(TaskExecutors.isVirtualThreadsSupported());
+
+        var result = TaskExecutors.create(ExecutionMode.VIRTUAL, "test-", 1, 2, 10, 10, RejectionPolicy.ABORT);
+
+        assertThat(result, is(instanceOf(ConcurrentTaskExecutor.class)));
+        assertThat(result.submit(() -> Thread.currentThread().getClass().getSimpleName()).get(),
+                is("VirtualThread"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void create_virtualModeNotSupported_shouldThrowException() {
+        assumeFalse(TaskExecutors.isVirtualThreadsSupported());
+
+        TaskExecutors.create(ExecutionMode.VIRTUAL, "test-", 1, 2, 10, 10, RejectionPolicy.ABORT);
+    }
+
+    // Util methods
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
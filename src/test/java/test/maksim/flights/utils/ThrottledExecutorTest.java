@@ -0,0 +1,93 @@
+package test.maksim.flights.utils;
+
+import org.junit.Test;
+import test.maksim.flights.constants.RejectionPolicy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ThrottledExecutorTest {
+
+    private static final int MAX_CONCURRENCY = 2;
+
+    private final ThrottledExecutor executor = new ThrottledExecutor(task -> new Thread(task).start(), MAX_CONCURRENCY);
+
+    @Test
+    public void execute_moreTasksThanPermits_shouldRunAtMostMaxConcurrency() throws Exception {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var finished = new CountDownLatch(5);
+
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                await(release);
+                running.decrementAndGet();
+                finished.countDown();
+            });
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        release.countDown();
+
+        assertThat(finished.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(maxRunning.get(), is(MAX_CONCURRENCY));
+    }
+
+    @Test
+    public void execute_taskFailed_shouldReleasePermit() throws Exception {
+        var finished = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            throw new IllegalStateException("test");
+        });
+        executor.execute(finished::countDown);
+
+        assertThat(finished.await(5, TimeUnit.SECONDS), is(true));
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertThat(executor.getAvailablePermits(), is(MAX_CONCURRENCY));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void execute_queueFull_shouldRejectTask() {
+        var bounded = new ThrottledExecutor(task -> new Thread(task).start(), 1, 1, RejectionPolicy.ABORT);
+        var release = new CountDownLatch(1);
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                bounded.execute(() -> await(release));
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void execute_queueFullCallerRuns_shouldRunTaskOnCallerThread() {
+        var bounded = new ThrottledExecutor(task -> new Thread(task).start(), 1, 0, RejectionPolicy.CALLER_RUNS);
+        var release = new CountDownLatch(1);
+        var thread = new AtomicReference<Thread>();
+        bounded.execute(() -> await(release));
+
+        bounded.execute(() -> thread.set(Thread.currentThread()));
+
+        assertThat(thread.get(), is(Thread.currentThread()));
+        release.countDown();
+    }
+
+    // Util methods
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
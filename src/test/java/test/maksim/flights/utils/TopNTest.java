@@ -0,0 +1,32 @@
+package test.maksim.flights.utils;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TopNTest {
+
+    private final TopN<String> top = new TopN<>(3, Comparator.comparingInt(String::length));
+
+    @Test
+    public void offer_moreThanLimit_shouldKeepBest() {
+        List.of("aaaa", "b", "ccc", "dd", "eeeee").forEach(top::offer);
+
+        assertThat(top.toList(), equalTo(List.of("b", "dd", "ccc")));
+        assertThat(top.getWorst(), equalTo("ccc"));
+        assertThat(top.isFull(), is(true));
+    }
+
+    @Test
+    public void offer_equalElements_shouldKeepFirstOffered() {
+        List.of("a1", "b", "a2", "a3", "a4", "c").forEach(top::offer);
+
+        assertThat(top.toList(), equalTo(List.of("b", "c", "a1")));
+        assertThat(top.offer("a5"), is(false));
+    }
+}
@@ -1,15 +1,39 @@
 package test.maksim.flights.validator;
 
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import test.maksim.flights.Config;
 import test.maksim.flights.domain.FlightsRequest;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 import static java.time.temporal.ChronoUnit.MINUTES;
+import static org.mockito.Mockito.lenient;
 
+@RunWith(MockitoJUnitRunner.class)
 public class RequestValidatorTest {
 
-    private final RequestValidator validator = new RequestValidator();
+    private static final int MAX_STOPS_LIMIT = 3;
+    private static final long MAX_TIMEOUT_MS = 30000;
+    private static final int MAX_WINDOW_DAYS = 31;
+
+    @InjectMocks
+    private RequestValidator validator;
+
+    @Mock
+    private Config config;
+
+    @Before
+    public void setUp() {
+        lenient().when(config.getMaxStopsLimit()).thenReturn(MAX_STOPS_LIMIT);
+        lenient().when(config.getMaxSearchTimeoutMs()).thenReturn(MAX_TIMEOUT_MS);
+        lenient().when(config.getMaxSearchWindowDays()).thenReturn(MAX_WINDOW_DAYS);
+    }
 
     @Test
     public void validate_validRequest_noException() {
@@ -26,8 +50,15 @@ public class RequestValidatorTest {
     }
 
     @Test(expected = IllegalArgumentException.class)
-    public void validate_maxStopsMoreThan1_shouldThrowException() {
-        var request = createValidBuilder().maxStops(2).build();
+    public void validate_maxStopsMoreThanLimit_shouldThrowException() {
+        var request = createValidBuilder().maxStops(MAX_STOPS_LIMIT + 1).build();
+
+        validator.validate(request);
+    }
+
+    @Test
+    public void validate_maxStopsEqualsLimit_noException() {
+        var request = createValidBuilder().maxStops(MAX_STOPS_LIMIT).build();
 
         validator.validate(request);
     }
@@ -66,6 +97,66 @@ public class RequestValidatorTest {
         validator.validate(request);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void validate_windowLongerThanMax_shouldThrowException() {
+        var request = createValidBuilder()
+                .arrivalDateTime(LocalDateTime.parse("2149-07-01T07:00").plusDays(MAX_WINDOW_DAYS).plusMinutes(1))
+                .build();
+
+        validator.validate(request);
+    }
+
+    @Test
+    public void validate_windowEqualsMax_noException() {
+        var request = createValidBuilder()
+                .arrivalDateTime(LocalDateTime.parse("2149-07-01T07:00").plusDays(MAX_WINDOW_DAYS))
+                .build();
+
+        validator.validate(request);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void validate_limit0_shouldThrowException() {
+        var request = createValidBuilder().limit(0).build();
+
+        validator.validate(request);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void validate_timeout0_shouldThrowException() {
+        var request = createValidBuilder().timeout(Duration.ZERO).build();
+
+        validator.validate(request);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void validate_timeoutOverMax_shouldThrowException() {
+        var request = createValidBuilder().timeout(Duration.ofMillis(MAX_TIMEOUT_MS + 1)).build();
+
+        validator.validate(request);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void validate_timeoutOverflowingNanos_shouldThrowException() {
+        var request = createValidBuilder().timeout(Duration.ofMillis(Long.MAX_VALUE)).build();
+
+        validator.validate(request);
+    }
+
+    @Test
+    public void validate_maxTimeout_noException() {
+        var request = createValidBuilder().timeout(Duration.ofMillis(MAX_TIMEOUT_MS)).build();
+
+        validator.validate(request);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void validate_noArrivalDate_shouldThrowException() {
+        var request = createValidBuilder().arrivalDateTime(null).build();
+
+        validator.validate(request);
+    }
+
     // Util methods
 
     private FlightsRequest.FlightsRequestBuilder createValidBuilder() {